@@ -0,0 +1,89 @@
+package com.madirex;
+
+import com.madirex.repositories.funko.FunkoRepositoryImpl;
+import com.madirex.services.crud.funko.FunkoServiceImpl;
+import com.madirex.services.database.DatabaseManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark de la copia de seguridad en JSON de FunkoServiceImpl.backup y en snapshot binario de
+ * FunkoServiceImpl.backupSnapshot
+ * Se ejecuta con: gradle jmh -PjmhIncludes=BackupBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class BackupBenchmark {
+    private static final String FILE_NAME = "backup.json";
+    private static final String SNAPSHOT_NAME = "backup.snap";
+
+    @Param({"1000", "10000"})
+    private int rows;
+
+    private FunkoServiceImpl service;
+    private Path directory;
+
+    /**
+     * Llena la tabla y crea el directorio de la copia
+     *
+     * @throws SQLException Error en la base de datos
+     * @throws IOException  Error al crear el directorio
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException, IOException {
+        FunkoRepositoryImpl repository = FunkoRepositoryImpl.getInstance(DatabaseManager.getInstance());
+        BenchmarkData.populate(repository, rows);
+        service = new FunkoServiceImpl(repository);
+        directory = Files.createTempDirectory("funkos-jmh");
+    }
+
+    /**
+     * Borra la copia y su directorio y cierra el pool de conexiones
+     *
+     * @throws IOException Error al borrar los ficheros
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(directory.resolve(FILE_NAME));
+        Files.deleteIfExists(directory.resolve(SNAPSHOT_NAME));
+        Files.deleteIfExists(directory);
+        service.close();
+        DatabaseManager.getInstance().close();
+    }
+
+    /**
+     * Escribe la copia de seguridad de toda la tabla
+     *
+     * @return tamaño del fichero escrito
+     * @throws SQLException Error en la base de datos
+     * @throws IOException  Error al escribir el fichero
+     */
+    @Benchmark
+    public long backup() throws SQLException, IOException {
+        service.backup(directory.toString(), FILE_NAME);
+        return new File(directory.toFile(), FILE_NAME).length();
+    }
+
+    /**
+     * Escribe el snapshot binario de toda la tabla
+     *
+     * @return tamaño del fichero escrito
+     * @throws SQLException Error en la base de datos
+     * @throws IOException  Error al escribir el fichero
+     */
+    @Benchmark
+    public long snapshot() throws SQLException, IOException {
+        service.backupSnapshot(directory.toString(), SNAPSHOT_NAME);
+        return new File(directory.toFile(), SNAPSHOT_NAME).length();
+    }
+}
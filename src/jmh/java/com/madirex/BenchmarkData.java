@@ -0,0 +1,94 @@
+package com.madirex;
+
+import com.madirex.models.Funko;
+import com.madirex.models.Model;
+import com.madirex.repositories.funko.FunkoRepository;
+import com.madirex.services.database.DatabaseManager;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Generación de datos para los benchmarks
+ * Los datos se generan con una semilla fija para que todas las ejecuciones midan lo mismo. La base de datos
+ * es la H2 en memoria configurada en src/jmh/resources/database.properties
+ */
+final class BenchmarkData {
+    static final long SEED = 42;
+    private static final Model[] MODELS = Model.values();
+
+    /**
+     * Constructor privado: clase de utilidades
+     */
+    private BenchmarkData() {
+    }
+
+    /**
+     * Genera un Funko
+     *
+     * @param random generador de números aleatorios
+     * @param index  número del Funko
+     * @return Funko generado
+     */
+    static Funko funko(Random random, int index) {
+        return Funko.builder()
+                .cod(new UUID(random.nextLong(), random.nextLong()))
+                .name("Funko " + index)
+                .model(MODELS[random.nextInt(MODELS.length)])
+                .price(random.nextInt(1, 10_000) / 100.0)
+                .releaseDate(LocalDate.of(2000, 1, 1).plusDays(random.nextInt(9000)))
+                .build();
+    }
+
+    /**
+     * Vacía la tabla y la llena con Funkos generados
+     *
+     * @param repository repositorio en el que se guardan
+     * @param rows       número de Funkos
+     * @return cods de los Funkos guardados, en orden de inserción
+     * @throws SQLException Error en la base de datos
+     */
+    static List<String> populate(FunkoRepository repository, int rows) throws SQLException {
+        DatabaseManager.getInstance().delete("DELETE FROM funko");
+        Random random = new Random(SEED);
+        List<Funko> funkos = new ArrayList<>(rows);
+        List<String> cods = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Funko funko = funko(random, i);
+            funkos.add(funko);
+            cods.add(funko.getCod().toString());
+        }
+        repository.saveAll(funkos);
+        return cods;
+    }
+
+    /**
+     * Escribe un CSV con el formato de data/funkos.csv y Funkos generados
+     *
+     * @param rows número de filas, sin contar la cabecera
+     * @return ruta del fichero temporal
+     * @throws IOException Error al escribir el fichero
+     */
+    static Path writeCsv(int rows) throws IOException {
+        Path path = Files.createTempFile("funkos-jmh", ".csv");
+        Random random = new Random(SEED);
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write("COD,NOMBRE,MODELO,PRECIO,FECHA_LANZAMIENTO\n");
+            for (int i = 0; i < rows; i++) {
+                Funko funko = funko(random, i);
+                writer.write(funko.getCod() + "," + funko.getName() + "," + funko.getModel() + ","
+                        + funko.getPrice() + "," + funko.getReleaseDate() + "\n");
+            }
+        }
+        return path;
+    }
+}
@@ -0,0 +1,92 @@
+package com.madirex;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark de la búsqueda puntual de un Funko por cod, con y sin el índice único sobre cod
+ * Se ejecuta con: gradle jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class CodLookupBenchmark {
+    private static final int SAMPLE_SIZE = 1024;
+
+    @Param({"1000000"})
+    private int rows;
+
+    @Param({"true", "false"})
+    private boolean indexed;
+
+    private Connection connection;
+    private PreparedStatement lookup;
+    private String[] cods;
+    private int next;
+
+    /**
+     * Crea la tabla en memoria, la llena con las filas indicadas y elige una muestra de cods a buscar
+     *
+     * @throws SQLException Error en la base de datos
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:cod_lookup_" + indexed);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS funko");
+            statement.execute("CREATE TABLE funko (id BIGINT PRIMARY KEY AUTO_INCREMENT, " +
+                    "cod UUID DEFAULT RANDOM_UUID() NOT NULL, nombre VARCHAR(255), modelo VARCHAR(6), " +
+                    "precio DECIMAL(10, 2), fecha_lanzamiento DATE, " +
+                    "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+            statement.execute("INSERT INTO funko (cod, nombre, modelo, precio, fecha_lanzamiento) " +
+                    "SELECT RANDOM_UUID(), CONCAT('Funko ', X), 'ANIME', 9.99, DATE '2023-01-01' " +
+                    "FROM SYSTEM_RANGE(1, " + rows + ")");
+            if (indexed) {
+                statement.execute("CREATE UNIQUE INDEX idx_funko_cod ON funko (cod)");
+            }
+            cods = new String[SAMPLE_SIZE];
+            try (ResultSet res = statement.executeQuery("SELECT cod FROM funko ORDER BY RAND() LIMIT " + SAMPLE_SIZE)) {
+                int i = 0;
+                while (res.next()) {
+                    cods[i++] = res.getString(1);
+                }
+            }
+        }
+        lookup = connection.prepareStatement("SELECT * FROM funko WHERE cod = ?");
+    }
+
+    /**
+     * Cierra la base de datos en memoria
+     *
+     * @throws SQLException Error en la base de datos
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        lookup.close();
+        connection.close();
+    }
+
+    /**
+     * Busca un Funko por cod, recorriendo la muestra de cods en orden
+     *
+     * @return nombre del Funko encontrado
+     * @throws SQLException Error en la base de datos
+     */
+    @Benchmark
+    public String findByCod() throws SQLException {
+        lookup.setString(1, cods[next++ & (SAMPLE_SIZE - 1)]);
+        try (ResultSet res = lookup.executeQuery()) {
+            return res.next() ? res.getString("nombre") : null;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.madirex;
+
+import com.madirex.exceptions.ReadCSVFailException;
+import com.madirex.models.Funko;
+import com.madirex.services.io.CsvManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark de la lectura completa de un CSV de Funkos generado con CsvManager.fileToFunkoList
+ * Se ejecuta con: gradle jmh -PjmhIncludes=CsvManagerBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class CsvManagerBenchmark {
+
+    @Param({"10000", "1000000"})
+    private int rows;
+
+    private Path csv;
+
+    /**
+     * Genera el fichero CSV
+     *
+     * @throws IOException Error al escribir el fichero
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        csv = BenchmarkData.writeCsv(rows);
+    }
+
+    /**
+     * Borra el fichero CSV
+     *
+     * @throws IOException Error al borrar el fichero
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(csv);
+    }
+
+    /**
+     * Lee todos los Funkos del fichero
+     *
+     * @return Funkos leídos
+     * @throws ReadCSVFailException Error al leer el fichero
+     */
+    @Benchmark
+    public List<Funko> fileToFunkoList() throws ReadCSVFailException {
+        return CsvManager.getInstance().fileToFunkoList(csv.toString()).orElseThrow();
+    }
+}
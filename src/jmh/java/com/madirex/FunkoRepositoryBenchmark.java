@@ -0,0 +1,95 @@
+package com.madirex;
+
+import com.madirex.models.Funko;
+import com.madirex.repositories.funko.FunkoRepository;
+import com.madirex.repositories.funko.FunkoRepositoryImpl;
+import com.madirex.services.database.DatabaseManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark de las operaciones de FunkoRepositoryImpl sobre una tabla con Funkos generados
+ * Se ejecuta con: gradle jmh -PjmhIncludes=FunkoRepositoryBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class FunkoRepositoryBenchmark {
+    private static final int SAMPLE_SIZE = 4096;
+
+    @Param({"1000", "10000"})
+    private int rows;
+
+    private FunkoRepository repository;
+    private String[] sample;
+    private Random random;
+    private int next;
+
+    /**
+     * Llena la tabla y elige una muestra de cods a buscar
+     *
+     * @throws SQLException Error en la base de datos
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        repository = FunkoRepositoryImpl.getInstance(DatabaseManager.getInstance());
+        List<String> cods = BenchmarkData.populate(repository, rows);
+        Random sampleRandom = new Random(BenchmarkData.SEED);
+        sample = new String[SAMPLE_SIZE];
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            sample[i] = cods.get(sampleRandom.nextInt(rows));
+        }
+        random = new Random(BenchmarkData.SEED + 1);
+    }
+
+    /**
+     * Cierra el pool de conexiones
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        DatabaseManager.getInstance().close();
+    }
+
+    /**
+     * Busca un Funko por cod, recorriendo la muestra de cods en orden
+     *
+     * @return Funko encontrado
+     * @throws SQLException Error en la base de datos
+     */
+    @Benchmark
+    public Optional<Funko> findById() throws SQLException {
+        return repository.findById(sample[next++ & (SAMPLE_SIZE - 1)]);
+    }
+
+    /**
+     * Lee todos los Funkos de la tabla
+     *
+     * @return Funkos leídos
+     * @throws SQLException Error en la base de datos
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Funko> findAll() throws SQLException {
+        return repository.findAll();
+    }
+
+    /**
+     * Guarda un Funko nuevo
+     * La tabla crece durante la medición; su tamaño inicial es el del parámetro rows
+     *
+     * @return Funko guardado
+     * @throws SQLException Error en la base de datos
+     */
+    @Benchmark
+    public Optional<Funko> save() throws SQLException {
+        return repository.save(BenchmarkData.funko(random, next++));
+    }
+}
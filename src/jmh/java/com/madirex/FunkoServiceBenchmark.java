@@ -0,0 +1,82 @@
+package com.madirex;
+
+import com.madirex.models.Funko;
+import com.madirex.repositories.funko.FunkoRepositoryImpl;
+import com.madirex.services.crud.funko.FunkoServiceImpl;
+import com.madirex.services.database.DatabaseManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark de FunkoServiceImpl.findById con distintas proporciones de lecturas de Funkos frecuentes
+ * Una parte de las lecturas (hotRatio) va a un conjunto de Funkos que cabe en la caché y el resto se reparte
+ * por toda la tabla, que es diez veces mayor que la caché. La tasa de aciertos real se escribe al terminar.
+ * Se ejecuta con: gradle jmh -PjmhIncludes=FunkoServiceBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class FunkoServiceBenchmark {
+    private static final int SAMPLE_SIZE = 1 << 16;
+    private static final int ROWS = 10_000;
+    private static final int HOT_KEYS = 500;
+
+    @Param({"0.0", "0.5", "0.9", "1.0"})
+    private double hotRatio;
+
+    private FunkoServiceImpl service;
+    private String[] sample;
+    private int next;
+
+    /**
+     * Llena la tabla, genera la secuencia de cods a buscar y calienta la caché con los Funkos frecuentes
+     *
+     * @throws SQLException Error en la base de datos
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        FunkoRepositoryImpl repository = FunkoRepositoryImpl.getInstance(DatabaseManager.getInstance());
+        List<String> cods = BenchmarkData.populate(repository, ROWS);
+        service = new FunkoServiceImpl(repository);
+        Random random = new Random(BenchmarkData.SEED);
+        sample = new String[SAMPLE_SIZE];
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            boolean hot = random.nextDouble() < hotRatio;
+            sample[i] = cods.get(hot ? random.nextInt(HOT_KEYS) : HOT_KEYS + random.nextInt(ROWS - HOT_KEYS));
+        }
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < HOT_KEYS; i++) {
+                service.findById(cods.get(i));
+            }
+        }
+    }
+
+    /**
+     * Escribe las estadísticas de la caché y cierra el pool de conexiones
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.println(service.getCache().getStats());
+        service.close();
+        DatabaseManager.getInstance().close();
+    }
+
+    /**
+     * Busca un Funko por cod a través de la caché del servicio
+     *
+     * @return Funko encontrado
+     * @throws SQLException Error en la base de datos
+     */
+    @Benchmark
+    public Optional<Funko> findById() throws SQLException {
+        return service.findById(sample[next++ & (SAMPLE_SIZE - 1)]);
+    }
+}
@@ -4,10 +4,13 @@ import com.madirex.controllers.FunkoController;
 import com.madirex.exceptions.*;
 import com.madirex.models.Funko;
 import com.madirex.models.Model;
+import com.madirex.models.Page;
 import com.madirex.repositories.funko.FunkoRepositoryImpl;
+import com.madirex.services.crud.funko.FunkoService;
 import com.madirex.services.crud.funko.FunkoServiceImpl;
 import com.madirex.services.database.DatabaseManager;
-import com.madirex.services.io.CsvManager;
+import com.madirex.services.io.FunkoImportPipeline;
+import com.madirex.utils.ApplicationProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -15,10 +18,8 @@ import java.io.File;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.time.LocalDate;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 /**
@@ -26,8 +27,10 @@ import java.util.stream.Collectors;
  */
 public class FunkoProgram {
 
+    private static final int PAGE_SIZE = 50;
     private static FunkoProgram funkoProgramInstance;
     private final Logger logger = LoggerFactory.getLogger(FunkoProgram.class);
+    private final FunkoImportPipeline importPipeline;
     private FunkoController controller;
 
     /**
@@ -35,8 +38,17 @@ public class FunkoProgram {
      * SINGLETON
      */
     private FunkoProgram() {
-        controller = new FunkoController(new FunkoServiceImpl(FunkoRepositoryImpl
-                .getInstance(DatabaseManager.getInstance())));
+        FunkoService funkoService = new FunkoServiceImpl(FunkoRepositoryImpl
+                .getInstance(DatabaseManager.getInstance()));
+        controller = new FunkoController(funkoService);
+        ApplicationProperties properties = ApplicationProperties.getInstance();
+        importPipeline = new FunkoImportPipeline(funkoService,
+                Integer.parseInt(properties.readProperty("import.parsers",
+                        String.valueOf(Runtime.getRuntime().availableProcessors()))),
+                Integer.parseInt(properties.readProperty("import.writers", "2")),
+                Integer.parseInt(properties.readProperty("import.queue.capacity", "8")),
+                Integer.parseInt(properties.readProperty("csv.chunk.size", "1000")),
+                Integer.parseInt(properties.readProperty("import.segment.size", "4194304")));
     }
 
     /**
@@ -60,6 +72,7 @@ public class FunkoProgram {
         callAllServiceExceptionMethods();
         callAllServiceMethods();
         databaseQueries();
+        controller.close();
         DatabaseManager.getInstance().close();
     }
 
@@ -148,12 +161,12 @@ public class FunkoProgram {
      */
     private void printListOfFunkosOfName(String name) {
         try {
-            controller.findAll().stream().filter(e -> e.getName().startsWith(name))
-                    .forEach(e -> logger.info(e.toString()));
+            controller.findByNameStartingWith(name).forEach(e -> logger.info(e.toString()));
         } catch (SQLException e) {
             throw new RuntimeException(e);
         } catch (FunkoNotFoundException e) {
-            throw new RuntimeException(e);
+            String strError = "No se han encontrado Funkos: " + e;
+            logger.error(strError);
         }
     }
 
@@ -164,11 +177,9 @@ public class FunkoProgram {
      */
     private void printNumberOfFunkosOfName(String name) {
         try {
-            logger.info(String.valueOf(controller.findAll().stream().filter(e -> e.getName().startsWith(name)).count()));
+            logger.info(String.valueOf(controller.countByNamePrefix(name)));
         } catch (SQLException e) {
             throw new RuntimeException(e);
-        } catch (FunkoNotFoundException e) {
-            throw new RuntimeException(e);
         }
     }
 
@@ -179,12 +190,9 @@ public class FunkoProgram {
      */
     private void printFunkosReleasedIn(int i) {
         try {
-            controller.findAll().stream().filter(e -> e.getReleaseDate().getYear() == i)
-                    .forEach(e -> logger.info(e.toString()));
+            controller.findByReleaseYear(i).forEach(e -> logger.info(e.toString()));
         } catch (SQLException e) {
             throw new RuntimeException(e);
-        } catch (FunkoNotFoundException e) {
-            throw new RuntimeException(e);
         }
     }
 
@@ -193,12 +201,9 @@ public class FunkoProgram {
      */
     private void printNumberOfFunkosByModels() {
         try {
-            controller.findAll().stream().collect(Collectors.groupingBy(Funko::getModel, Collectors.counting()))
-                    .forEach((model, count) -> logger.info("🔵 " + model + " -> " + count));
+            controller.countByModel().forEach((model, count) -> logger.info("🔵 " + model + " -> " + count));
         } catch (SQLException e) {
             throw new RuntimeException(e);
-        } catch (FunkoNotFoundException e) {
-            throw new RuntimeException(e);
         }
     }
 
@@ -224,12 +229,9 @@ public class FunkoProgram {
      */
     private void printAvgPriceOfFunkos() {
         try {
-            controller.findAll().stream().mapToDouble(Funko::getPrice).average()
-                    .ifPresent(e -> logger.info(String.format("%.2f", e)));
+            controller.averagePrice().ifPresent(e -> logger.info(String.format("%.2f", e)));
         } catch (SQLException e) {
             throw new RuntimeException(e);
-        } catch (FunkoNotFoundException e) {
-            throw new RuntimeException(e);
         }
     }
 
@@ -238,12 +240,9 @@ public class FunkoProgram {
      */
     private void printExpensiveFunko() {
         try {
-            controller.findAll().stream().max(Comparator.comparingDouble(Funko::getPrice))
-                    .ifPresent(e -> logger.info(e.toString()));
+            controller.findMostExpensive().ifPresent(e -> logger.info(e.toString()));
         } catch (SQLException e) {
             throw new RuntimeException(e);
-        } catch (FunkoNotFoundException e) {
-            throw new RuntimeException(e);
         }
     }
 
@@ -363,50 +362,29 @@ public class FunkoProgram {
     }
 
     /**
-     * Imprime todos los Funkos
+     * Imprime todos los Funkos, recorriéndolos página a página
      *
      * @throws SQLException Excepción SQL
      */
     private void printFindAll() throws SQLException {
         logger.info("\nFind All:");
-        try {
-            controller.findAll().forEach(e -> logger.info(e.toString()));
-        } catch (FunkoNotFoundException e) {
-            String strError = "No se han encontrado Funkos: " + e;
-            logger.error(strError);
-        }
+        String pageToken = null;
+        do {
+            Page<Funko> page = controller.findAll(pageToken, PAGE_SIZE);
+            page.getItems().forEach(e -> logger.info(e.toString()));
+            pageToken = page.getNextPageToken();
+        } while (pageToken != null);
     }
 
     /**
-     * Lee un archivo CSV y lo inserta en la base de datos
+     * Lee un archivo CSV y lo inserta en la base de datos mediante la importación en paralelo
+     * El informe con el rendimiento y la ocupación de las colas se registra al terminar
      *
      * @param path Ruta del archivo CSV
      */
     public void loadFunkosFileAndInsertToDatabase(String path) {
-        AtomicBoolean failed = new AtomicBoolean(false);
-        CsvManager csvManager = CsvManager.getInstance();
         try {
-            csvManager.fileToFunkoList(path)
-                    .ifPresent(e -> {
-                        e.forEach(funko -> {
-                            try {
-                                controller.save(funko);
-                            } catch (SQLException throwables) {
-                                failed.set(true);
-                                String strError = "Error: " + throwables;
-                                logger.error(strError);
-                            } catch (FunkoNotValidException ex1) {
-                                String strError = "El Funko no es válido: " + ex1;
-                                logger.error(strError);
-                            } catch (FunkoNotSavedException ex2) {
-                                String strError = "El Funko no se ha guardado: " + ex2;
-                                logger.error(strError);
-                            }
-                        });
-                        if (failed.get()) {
-                            logger.error("Error al insertar los datos en la base de datos");
-                        }
-                    });
+            importPipeline.run(path);
         } catch (ReadCSVFailException e) {
             logger.error("Error al leer el CSV");
         }
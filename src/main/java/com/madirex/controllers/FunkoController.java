@@ -4,7 +4,13 @@ import com.madirex.exceptions.FunkoNotFoundException;
 import com.madirex.exceptions.FunkoNotRemovedException;
 import com.madirex.exceptions.FunkoNotSavedException;
 import com.madirex.exceptions.FunkoNotValidException;
+import com.madirex.models.BackupIncrement;
+import com.madirex.models.BackupManifest;
+import com.madirex.models.BatchResult;
 import com.madirex.models.Funko;
+import com.madirex.models.Model;
+import com.madirex.models.Page;
+import com.madirex.models.RestoreReport;
 import com.madirex.services.crud.funko.FunkoService;
 import com.madirex.validators.FunkoValidator;
 import org.slf4j.Logger;
@@ -12,8 +18,12 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalDouble;
 
 /**
  * Controlador de Funko
@@ -44,6 +54,20 @@ public class FunkoController implements BaseController<Funko> {
         return funkoService.findAll();
     }
 
+    /**
+     * Busca una página de Funkos
+     *
+     * @param pageToken token devuelto por la página anterior o null para la primera página
+     * @param pageSize  número máximo de Funkos de la página
+     * @return página de Funkos y token de la página siguiente
+     * @throws SQLException si hay un error en la base de datos
+     */
+    public Page<Funko> findAll(String pageToken, int pageSize) throws SQLException {
+        String msg = "FindAll página de " + pageSize;
+        logger.debug(msg);
+        return funkoService.findAll(pageToken, pageSize);
+    }
+
     /**
      * Busca un Funko por id
      *
@@ -58,6 +82,19 @@ public class FunkoController implements BaseController<Funko> {
         return funkoService.findById(id);
     }
 
+    /**
+     * Busca varios Funkos por su id
+     *
+     * @param ids ids de los Funkos
+     * @return Funkos encontrados por id
+     * @throws SQLException si hay un error en la base de datos
+     */
+    public Map<String, Funko> findAllById(Collection<String> ids) throws SQLException {
+        String msg = "FindAllById " + ids.size() + " ids";
+        logger.debug(msg);
+        return funkoService.findAllById(ids);
+    }
+
     /**
      * Busca Funkos por nombre
      *
@@ -72,6 +109,79 @@ public class FunkoController implements BaseController<Funko> {
         return funkoService.findByName(name);
     }
 
+    /**
+     * Busca Funkos cuyo nombre empieza por un texto
+     *
+     * @param prefix inicio del nombre del Funko
+     * @return Funkos encontrados
+     * @throws SQLException           si hay un error en la base de datos
+     * @throws FunkoNotFoundException si no se encuentra ningún Funko
+     */
+    public List<Funko> findByNameStartingWith(String prefix) throws SQLException, FunkoNotFoundException {
+        String msg = "FindByNameStartingWith " + prefix;
+        logger.debug(msg);
+        return funkoService.findByNameStartingWith(prefix);
+    }
+
+    /**
+     * Busca el Funko más caro
+     *
+     * @return Funko más caro
+     * @throws SQLException si hay un error en la base de datos
+     */
+    public Optional<Funko> findMostExpensive() throws SQLException {
+        logger.debug("FindMostExpensive");
+        return funkoService.findMostExpensive();
+    }
+
+    /**
+     * Calcula el precio medio de los Funkos
+     *
+     * @return precio medio o vacío si no hay Funkos
+     * @throws SQLException si hay un error en la base de datos
+     */
+    public OptionalDouble averagePrice() throws SQLException {
+        logger.debug("AveragePrice");
+        return funkoService.averagePrice();
+    }
+
+    /**
+     * Cuenta los Funkos de cada modelo
+     *
+     * @return número de Funkos por modelo
+     * @throws SQLException si hay un error en la base de datos
+     */
+    public Map<Model, Long> countByModel() throws SQLException {
+        logger.debug("CountByModel");
+        return funkoService.countByModel();
+    }
+
+    /**
+     * Busca los Funkos lanzados en un año
+     *
+     * @param year año de lanzamiento
+     * @return Funkos encontrados
+     * @throws SQLException si hay un error en la base de datos
+     */
+    public List<Funko> findByReleaseYear(int year) throws SQLException {
+        String msg = "FindByReleaseYear " + year;
+        logger.debug(msg);
+        return funkoService.findByReleaseYear(year);
+    }
+
+    /**
+     * Cuenta los Funkos cuyo nombre empieza por un texto
+     *
+     * @param prefix inicio del nombre de los Funkos
+     * @return número de Funkos
+     * @throws SQLException si hay un error en la base de datos
+     */
+    public long countByNamePrefix(String prefix) throws SQLException {
+        String msg = "CountByNamePrefix " + prefix;
+        logger.debug(msg);
+        return funkoService.countByNamePrefix(prefix);
+    }
+
     /**
      * Guarda un Funko
      *
@@ -88,6 +198,31 @@ public class FunkoController implements BaseController<Funko> {
         return funkoService.save(funko);
     }
 
+    /**
+     * Guarda varios Funkos por lotes
+     * Los Funkos no válidos se devuelven como fallidos sin llegar a la base de datos
+     *
+     * @param funkos Funkos a guardar
+     * @return Resultado con los Funkos guardados y los fallidos
+     * @throws SQLException si hay un error en la base de datos
+     */
+    public BatchResult<Funko> saveAll(Collection<Funko> funkos) throws SQLException {
+        String msg = "SaveAll " + funkos.size() + " Funkos";
+        logger.debug(msg);
+        BatchResult<Funko> result = new BatchResult<>();
+        List<Funko> valid = new ArrayList<>(funkos.size());
+        for (Funko funko : funkos) {
+            try {
+                FunkoValidator.validate(funko);
+                valid.add(funko);
+            } catch (FunkoNotValidException e) {
+                result.addFailed(funko, e.getMessage());
+            }
+        }
+        result.merge(funkoService.saveAll(valid));
+        return result;
+    }
+
     /**
      * Actualiza un Funko
      *
@@ -138,4 +273,112 @@ public class FunkoController implements BaseController<Funko> {
     public void backup(String url, String fileName) throws SQLException, IOException {
         funkoService.backup(url, fileName);
     }
+
+    /**
+     * Restaura en la base de datos los Funkos de un backup
+     *
+     * @param path ruta del archivo del backup
+     * @return informe de la restauración
+     * @throws SQLException si hay un error en la base de datos
+     * @throws IOException  si hay un error al leer el backup
+     */
+    public RestoreReport restore(String path) throws SQLException, IOException {
+        String msg = "Restore " + path;
+        logger.debug(msg);
+        return funkoService.restore(path);
+    }
+
+    /**
+     * Realiza un backup de la base de datos en un snapshot binario
+     *
+     * @param path     ruta del directorio donde se guardará el snapshot
+     * @param fileName nombre del archivo
+     * @return número de Funkos escritos
+     * @throws SQLException si hay un error en la base de datos
+     * @throws IOException  si hay un error al escribir el snapshot
+     */
+    public long backupSnapshot(String path, String fileName) throws SQLException, IOException {
+        String msg = "Snapshot en " + path;
+        logger.debug(msg);
+        return funkoService.backupSnapshot(path, fileName);
+    }
+
+    /**
+     * Restaura en la base de datos los Funkos de un snapshot binario
+     *
+     * @param path ruta del archivo del snapshot
+     * @return informe de la restauración
+     * @throws SQLException si hay un error en la base de datos
+     * @throws IOException  si hay un error al leer el snapshot o está dañado
+     */
+    public RestoreReport restoreSnapshot(String path) throws SQLException, IOException {
+        String msg = "Restore snapshot " + path;
+        logger.debug(msg);
+        return funkoService.restoreSnapshot(path);
+    }
+
+    /**
+     * Añade un backup incremental a la cadena de backups de un directorio
+     *
+     * @param directory ruta del directorio de la cadena de backups
+     * @return backup realizado
+     * @throws SQLException si hay un error en la base de datos
+     * @throws IOException  si hay un error al escribir el backup
+     */
+    public BackupIncrement backupIncremental(String directory) throws SQLException, IOException {
+        String msg = "Backup incremental en " + directory;
+        logger.debug(msg);
+        return funkoService.backupIncremental(directory);
+    }
+
+    /**
+     * Restaura en la base de datos una cadena de backups incrementales
+     *
+     * @param directory ruta del directorio de la cadena de backups
+     * @return informe de la restauración
+     * @throws SQLException si hay un error en la base de datos
+     * @throws IOException  si hay un error al leer los backups o la cadena está incompleta
+     */
+    public RestoreReport restoreIncremental(String directory) throws SQLException, IOException {
+        String msg = "Restore incremental " + directory;
+        logger.debug(msg);
+        return funkoService.restoreIncremental(directory);
+    }
+
+    /**
+     * Realiza un backup por bloques comprimidos de la base de datos
+     *
+     * @param path ruta del directorio donde se guardará el backup
+     * @param name nombre del directorio del backup
+     * @return manifiesto del backup
+     * @throws SQLException si hay un error en la base de datos
+     * @throws IOException  si hay un error al escribir el backup
+     */
+    public BackupManifest backupChunked(String path, String name) throws SQLException, IOException {
+        String msg = "Backup por bloques en " + path;
+        logger.debug(msg);
+        return funkoService.backupChunked(path, name);
+    }
+
+    /**
+     * Restaura en la base de datos los Funkos de un backup por bloques
+     *
+     * @param directory ruta del directorio del backup
+     * @return informe de la restauración
+     * @throws SQLException si hay un error en la base de datos
+     * @throws IOException  si hay un error al leer el backup o está dañado
+     */
+    public RestoreReport restoreChunked(String directory) throws SQLException, IOException {
+        String msg = "Restore por bloques " + directory;
+        logger.debug(msg);
+        return funkoService.restoreChunked(directory);
+    }
+
+    /**
+     * Cierra el servicio de Funko y detiene sus hilos en segundo plano
+     */
+    public void close() {
+        logger.debug("Close");
+        funkoService.close();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.madirex.models;
+
+/**
+ * Resultado de un backup incremental
+ * El primer backup de la cadena (secuencia 0) es completo y los siguientes contienen los Funkos creados o
+ * modificados y los borrados en el intervalo (since, until]
+ *
+ * @param sequence número del backup dentro de la cadena
+ * @param file     nombre del fichero del backup, relativo al directorio de la cadena
+ * @param since    marca del backup anterior o null si es el backup completo
+ * @param until    marca hasta la que llega este backup y desde la que empezará el siguiente
+ * @param rows     número de Funkos del backup
+ * @param deleted  número de Funkos borrados del backup
+ */
+public record BackupIncrement(int sequence, String file, String since, String until, long rows, long deleted) {
+}
@@ -0,0 +1,28 @@
+package com.madirex.models;
+
+import java.util.List;
+
+/**
+ * Manifiesto de un backup por bloques
+ * Cada bloque es un fichero JSON comprimido con gzip que contiene un rango consecutivo de Funkos
+ *
+ * @param version   versión del formato del backup
+ * @param createdAt fecha y hora de creación del backup
+ * @param rows      número total de Funkos del backup
+ * @param chunks    bloques del backup, en orden de id
+ */
+public record BackupManifest(int version, String createdAt, long rows, List<Chunk> chunks) {
+    public static final String FILE_NAME = "manifest.json";
+    public static final int CURRENT_VERSION = 1;
+
+    /**
+     * Bloque de un backup
+     *
+     * @param file   nombre del fichero del bloque, relativo al directorio del backup
+     * @param rows   número de Funkos del bloque
+     * @param bytes  tamaño del fichero comprimido
+     * @param sha256 suma SHA-256 del fichero comprimido, en hexadecimal
+     */
+    public record Chunk(String file, long rows, long bytes, String sha256) {
+    }
+}
@@ -0,0 +1,56 @@
+package com.madirex.models;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resultado de una operación por lotes: elementos guardados y elementos fallidos con su motivo
+ *
+ * @param <T> Tipo de la entidad
+ */
+@Getter
+public class BatchResult<T> {
+    private final List<T> saved = new ArrayList<>();
+    private final List<Failure<T>> failed = new ArrayList<>();
+
+    /**
+     * Añade un elemento guardado correctamente
+     *
+     * @param item elemento guardado
+     */
+    public void addSaved(T item) {
+        saved.add(item);
+    }
+
+    /**
+     * Añade un elemento que no se ha podido guardar
+     *
+     * @param item   elemento fallido
+     * @param reason motivo del fallo
+     */
+    public void addFailed(T item, String reason) {
+        failed.add(new Failure<>(item, reason));
+    }
+
+    /**
+     * Añade los elementos de otro resultado a este
+     *
+     * @param other resultado a añadir
+     */
+    public void merge(BatchResult<T> other) {
+        saved.addAll(other.saved);
+        failed.addAll(other.failed);
+    }
+
+    /**
+     * Elemento que no se ha podido guardar y motivo del fallo
+     *
+     * @param item   elemento fallido
+     * @param reason motivo del fallo
+     * @param <T>    Tipo de la entidad
+     */
+    public record Failure<T>(T item, String reason) {
+    }
+}
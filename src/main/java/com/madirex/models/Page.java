@@ -0,0 +1,37 @@
+package com.madirex.models;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Página de resultados de una consulta paginada
+ * El token de continuación es opaco: solo sirve para pedir la página siguiente
+ *
+ * @param <T> Tipo de la entidad
+ */
+@Getter
+public class Page<T> {
+    private final List<T> items;
+    private final String nextPageToken;
+
+    /**
+     * Constructor de la clase
+     *
+     * @param items         elementos de la página
+     * @param nextPageToken token de la página siguiente o null si es la última
+     */
+    public Page(List<T> items, String nextPageToken) {
+        this.items = items;
+        this.nextPageToken = nextPageToken;
+    }
+
+    /**
+     * Indica si hay más páginas después de esta
+     *
+     * @return ¿Hay página siguiente?
+     */
+    public boolean hasNext() {
+        return nextPageToken != null;
+    }
+}
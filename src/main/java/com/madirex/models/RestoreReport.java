@@ -0,0 +1,24 @@
+package com.madirex.models;
+
+/**
+ * Informe de la restauración de un backup
+ *
+ * @param read          Funkos leídos del backup
+ * @param restored      Funkos guardados en la base de datos
+ * @param invalid       Funkos que no han superado la validación
+ * @param failed        Funkos que no se han podido guardar, por ejemplo porque su cod ya existe
+ * @param elapsedMillis duración de la restauración en milisegundos
+ */
+public record RestoreReport(long read, long restored, long invalid, long failed, long elapsedMillis) {
+
+    /**
+     * Devuelve un resumen legible del informe
+     *
+     * @return resumen del informe
+     */
+    @Override
+    public String toString() {
+        return String.format("Restauración terminada: %d leídos, %d restaurados, %d no válidos, %d fallidos en %d ms",
+                read, restored, invalid, failed, elapsedMillis);
+    }
+}
@@ -1,20 +1,178 @@
 package com.madirex.repositories.funko;
 
+import com.madirex.models.BatchResult;
 import com.madirex.models.Funko;
+import com.madirex.models.Model;
+import com.madirex.models.Page;
 import com.madirex.repositories.CRUDRepository;
+import com.madirex.services.database.TransactionCallback;
 
 import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.stream.Stream;
 
 /**
  * Interfaz que define las operaciones CRUD de FunkoRepository
  */
 public interface FunkoRepository extends CRUDRepository<Funko, String> {
     /**
-     * Busca un elemento en el repositorio por su nombre
+     * Devuelve una página de elementos ordenados por id
+     *
+     * @param pageToken Token de la página devuelto por la página anterior o null para la primera página
+     * @param pageSize  Número máximo de elementos de la página
+     * @return Página con los elementos y el token de la página siguiente
+     */
+    Page<Funko> findAll(String pageToken, int pageSize) throws SQLException;
+
+    /**
+     * Devuelve todos los elementos como un Stream que se lee de la base de datos bajo demanda
+     * El Stream mantiene abierta una conexión hasta que se cierra, por lo que debe usarse con try-with-resources
+     *
+     * @return Stream de los elementos ordenados por id
+     */
+    Stream<Funko> streamAll() throws SQLException;
+
+    /**
+     * Devuelve como un Stream leído bajo demanda los elementos con id en el rango [fromId, toId)
+     * El Stream mantiene abierta una conexión hasta que se cierra, por lo que debe usarse con try-with-resources
+     *
+     * @param fromId Primer id del rango, incluido
+     * @param toId   Último id del rango, excluido
+     * @return Stream de los elementos ordenados por id
+     */
+    Stream<Funko> streamRange(long fromId, long toId) throws SQLException;
+
+    /**
+     * Devuelve como un Stream leído bajo demanda los elementos cuyo updated_at está en el intervalo (since, until]
+     * El Stream mantiene abierta una conexión hasta que se cierra, por lo que debe usarse con try-with-resources
+     *
+     * @param since Inicio del intervalo, excluido
+     * @param until Fin del intervalo, incluido
+     * @return Stream de los elementos ordenados por id
+     */
+    Stream<Funko> streamChangedSince(LocalDateTime since, LocalDateTime until) throws SQLException;
+
+    /**
+     * Busca los ids de los elementos borrados en el intervalo (since, until] que no existen ahora
+     *
+     * @param since Inicio del intervalo, excluido
+     * @param until Fin del intervalo, incluido
+     * @return Ids de los elementos borrados
+     */
+    List<String> findDeletedSince(LocalDateTime since, LocalDateTime until) throws SQLException;
+
+    /**
+     * Devuelve la fecha y hora actual de la base de datos, con la que se marcan updated_at y los borrados
+     *
+     * @return Fecha y hora de la base de datos
+     */
+    LocalDateTime currentTimestamp() throws SQLException;
+
+    /**
+     * Ejecuta varias lecturas en una transacción de solo lectura en la que todas ven la misma foto de la base de
+     * datos
+     *
+     * @param reads Lecturas a ejecutar
+     * @param <T>   Tipo del resultado
+     * @return Resultado de las lecturas
+     */
+    <T> T inSnapshot(TransactionCallback<T> reads) throws SQLException;
+
+    /**
+     * Divide la tabla en rangos de id consecutivos con el mismo número de elementos (salvo el último)
+     *
+     * @param rowsPerRange Número de elementos de cada rango
+     * @return Primer id de cada rango, ordenados
+     */
+    List<Long> findRangeStartIds(int rowsPerRange) throws SQLException;
+
+    /**
+     * Busca varios elementos por su id
+     *
+     * @param ids Ids de los elementos a buscar
+     * @return Elementos encontrados por id; los ids que no existen no aparecen
+     */
+    Map<String, Funko> findAllById(Collection<String> ids) throws SQLException;
+
+    /**
+     * Busca los elementos cuyo nombre contiene el texto indicado, sin distinguir mayúsculas
      *
      * @param name Nombre del elemento a buscar
      * @return Lista de elementos encontrados
      */
     List<Funko> findByName(String name) throws SQLException;
+
+    /**
+     * Busca los elementos cuyo nombre empieza por el texto indicado, sin distinguir mayúsculas
+     *
+     * @param prefix Inicio del nombre de los elementos a buscar
+     * @return Lista de elementos encontrados
+     */
+    List<Funko> findByNameStartingWith(String prefix) throws SQLException;
+
+    /**
+     * Guarda varios elementos en el repositorio mediante lotes
+     *
+     * @param entities Elementos a guardar
+     * @return Resultado con los elementos guardados y los fallidos
+     */
+    BatchResult<Funko> saveAll(Collection<Funko> entities) throws SQLException;
+
+    /**
+     * Guarda varios elementos mediante lotes, sustituyendo los que ya existen con el mismo cod
+     *
+     * @param entities Elementos a guardar
+     * @return Resultado con los elementos guardados y los fallidos
+     */
+    BatchResult<Funko> upsertAll(Collection<Funko> entities) throws SQLException;
+
+    /**
+     * Borra varios elementos mediante lotes
+     *
+     * @param ids Ids de los elementos a borrar
+     * @return Número de elementos borrados
+     */
+    int deleteAll(Collection<String> ids) throws SQLException;
+
+    /**
+     * Busca el elemento con el precio más alto
+     *
+     * @return Optional del elemento más caro
+     */
+    Optional<Funko> findMostExpensive() throws SQLException;
+
+    /**
+     * Calcula el precio medio de los elementos
+     *
+     * @return Precio medio o vacío si no hay elementos
+     */
+    OptionalDouble averagePrice() throws SQLException;
+
+    /**
+     * Cuenta los elementos de cada modelo
+     *
+     * @return Número de elementos por modelo
+     */
+    Map<Model, Long> countByModel() throws SQLException;
+
+    /**
+     * Busca los elementos lanzados en un año
+     *
+     * @param year Año de lanzamiento
+     * @return Lista de elementos encontrados
+     */
+    List<Funko> findByReleaseYear(int year) throws SQLException;
+
+    /**
+     * Cuenta los elementos cuyo nombre empieza por el texto indicado, sin distinguir mayúsculas
+     *
+     * @param prefix Inicio del nombre de los elementos a contar
+     * @return Número de elementos
+     */
+    long countByNamePrefix(String prefix) throws SQLException;
 }
@@ -1,22 +1,71 @@
 package com.madirex.repositories.funko;
 
+import com.madirex.models.BatchResult;
 import com.madirex.models.Funko;
 import com.madirex.models.Model;
+import com.madirex.models.Page;
 import com.madirex.services.database.DatabaseManager;
+import com.madirex.services.database.TransactionCallback;
+import com.madirex.utils.ApplicationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalDouble;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 /**
  * Implementación de la interfaz FunkoRepository
  */
 public class FunkoRepositoryImpl implements FunkoRepository {
+    private static final String FIND_ALL_SQL = "SELECT * FROM funko ORDER BY id";
+    private static final String FIND_RANGE_SQL = "SELECT * FROM funko WHERE id >= ? AND id < ? ORDER BY id";
+    private static final String CHUNK_START_IDS_SQL = "SELECT id FROM " +
+            "(SELECT id, ROW_NUMBER() OVER (ORDER BY id) AS fila FROM funko) WHERE MOD(fila - 1, ?) = 0 ORDER BY id";
+    private static final String FIND_PAGE_SQL = "SELECT * FROM funko WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String FIND_BY_NAME_SQL = "SELECT * FROM funko WHERE nombre LIKE ? ESCAPE '\\' ORDER BY id";
+    private static final String MOST_EXPENSIVE_SQL = "SELECT * FROM funko ORDER BY precio DESC, id LIMIT 1";
+    private static final String AVERAGE_PRICE_SQL = "SELECT AVG(precio) FROM funko";
+    private static final String COUNT_BY_MODEL_SQL = "SELECT modelo, COUNT(*) FROM funko GROUP BY modelo";
+    private static final String FIND_BY_RELEASE_DATE_SQL = "SELECT * FROM funko " +
+            "WHERE fecha_lanzamiento >= ? AND fecha_lanzamiento < ? ORDER BY id";
+    private static final String COUNT_BY_NAME_SQL = "SELECT COUNT(*) FROM funko WHERE nombre LIKE ? ESCAPE '\\'";
+    private static final String INSERT_SQL = "INSERT INTO funko (cod, nombre, modelo, precio, fecha_lanzamiento, " +
+            "created_at, updated_at) VALUES (?, ?, ?, ?, ?, LOCALTIMESTAMP, LOCALTIMESTAMP)";
+    private static final String UPSERT_SQL = "MERGE INTO funko (cod, nombre, modelo, precio, fecha_lanzamiento, " +
+            "updated_at) KEY (cod) VALUES (?, ?, ?, ?, ?, LOCALTIMESTAMP)";
+    private static final String UPDATE_SQL = "UPDATE funko SET nombre = ?, modelo = ?, precio = ?, " +
+            "fecha_lanzamiento = ?, updated_at = LOCALTIMESTAMP WHERE cod = ?";
+    private static final String DELETE_SQL = "DELETE FROM funko WHERE cod = ?";
+    private static final String TOMBSTONE_SQL = "MERGE INTO funko_tombstone (cod, deleted_at) KEY (cod) " +
+            "VALUES (?, LOCALTIMESTAMP)";
+    private static final String CURRENT_TIMESTAMP_SQL = "SELECT LOCALTIMESTAMP";
+    private static final String CHANGED_SINCE_SQL = "SELECT * FROM funko WHERE updated_at > ? AND updated_at <= ? " +
+            "ORDER BY id";
+    private static final String DELETED_SINCE_SQL = "SELECT cod FROM funko_tombstone t " +
+            "WHERE deleted_at > ? AND deleted_at <= ? AND NOT EXISTS (SELECT 1 FROM funko f WHERE f.cod = t.cod) " +
+            "ORDER BY deleted_at";
     private static FunkoRepositoryImpl funkoRepositoryImplInstance;
+    private final Logger logger = LoggerFactory.getLogger(FunkoRepositoryImpl.class);
     private final DatabaseManager database;
+    private final int batchSize;
+    private final int fetchSize;
+    private final int inChunkSize;
 
     /**
      * Constructor de la clase
@@ -25,6 +74,10 @@ public class FunkoRepositoryImpl implements FunkoRepository {
      */
     private FunkoRepositoryImpl(DatabaseManager database) {
         this.database = database;
+        ApplicationProperties properties = ApplicationProperties.getInstance();
+        this.batchSize = Integer.parseInt(properties.readProperty("db.batch.size", "500"));
+        this.fetchSize = Integer.parseInt(properties.readProperty("db.fetch.size", "1000"));
+        this.inChunkSize = Integer.parseInt(properties.readProperty("db.in.chunk.size", "500"));
     }
 
     /**
@@ -40,27 +93,129 @@ public class FunkoRepositoryImpl implements FunkoRepository {
     }
 
     /**
-     * Devuelve todos los elementos del repositorio
+     * Devuelve todos los elementos del repositorio, en el mismo orden por id que streamAll y la paginación
      *
      * @return Optional de la lista de elementos
      */
     @Override
     public List<Funko> findAll() throws SQLException {
-        List<Funko> list = new ArrayList<>();
-        var sql = "SELECT * FROM funko";
-        database.beginTransaction();
-        var res = database.select(sql).orElseThrow();
-        while (res.next()) {
-            list.add(Funko.builder()
-                    .cod(UUID.fromString(res.getString("cod")))
-                    .name(res.getString("nombre"))
-                    .model(Model.valueOf(res.getString("modelo")))
-                    .price(res.getDouble("precio"))
-                    .releaseDate(res.getDate("fecha_lanzamiento").toLocalDate())
-                    .build());
+        return database.query(FIND_ALL_SQL, this::mapRow);
+    }
+
+    /**
+     * Devuelve todos los elementos como un Stream que se lee de la base de datos bajo demanda
+     * Las filas se piden en bloques de db.fetch.size y se convierten a medida que se consumen, por lo que
+     * la memoria usada no depende del tamaño de la tabla. Cerrar el Stream libera la conexión
+     *
+     * @return Stream de los elementos ordenados por id
+     */
+    @Override
+    public Stream<Funko> streamAll() throws SQLException {
+        return database.stream(FIND_ALL_SQL, fetchSize, this::mapRow);
+    }
+
+    /**
+     * Devuelve como un Stream leído bajo demanda los elementos con id en el rango [fromId, toId)
+     *
+     * @param fromId Primer id del rango, incluido
+     * @param toId   Último id del rango, excluido
+     * @return Stream de los elementos ordenados por id
+     */
+    @Override
+    public Stream<Funko> streamRange(long fromId, long toId) throws SQLException {
+        return database.stream(FIND_RANGE_SQL, fetchSize, this::mapRow, fromId, toId);
+    }
+
+    /**
+     * Devuelve como un Stream leído bajo demanda los elementos creados o modificados en el intervalo
+     * (since, until] según su updated_at
+     *
+     * @param since Instante del backup anterior, excluido
+     * @param until Instante hasta el que se exportan los cambios, incluido
+     * @return Stream de los elementos ordenados por id
+     */
+    @Override
+    public Stream<Funko> streamChangedSince(LocalDateTime since, LocalDateTime until) throws SQLException {
+        return database.stream(CHANGED_SINCE_SQL, fetchSize, this::mapRow, since, until);
+    }
+
+    /**
+     * Busca los ids de los elementos borrados en el intervalo (since, until] que no se han vuelto a crear
+     *
+     * @param since Instante del backup anterior, excluido
+     * @param until Instante hasta el que se exportan los cambios, incluido
+     * @return Ids de los elementos borrados, por orden de borrado
+     */
+    @Override
+    public List<String> findDeletedSince(LocalDateTime since, LocalDateTime until) throws SQLException {
+        return database.query(DELETED_SINCE_SQL, res -> res.getString(1), since, until);
+    }
+
+    /**
+     * Devuelve la fecha y hora actual de la base de datos, que es la que se usa en updated_at y en los borrados
+     * Dentro de una transacción es el instante en que empezó
+     *
+     * @return Fecha y hora de la base de datos
+     */
+    @Override
+    public LocalDateTime currentTimestamp() throws SQLException {
+        return database.queryFirst(CURRENT_TIMESTAMP_SQL, res -> res.getObject(1, LocalDateTime.class))
+                .orElseThrow(() -> new SQLException("La base de datos no ha devuelto la fecha actual"));
+    }
+
+    /**
+     * Ejecuta varias lecturas en una transacción de solo lectura en la que todas ven la misma foto de la base de
+     * datos, también los Streams que se abren y se leen dentro de ella
+     *
+     * @param reads Lecturas a ejecutar
+     * @param <T>   Tipo del resultado
+     * @return Resultado de las lecturas
+     */
+    @Override
+    public <T> T inSnapshot(TransactionCallback<T> reads) throws SQLException {
+        return database.inReadTransaction(reads);
+    }
+
+    /**
+     * Divide la tabla en rangos de id con el mismo número de elementos
+     * Solo recorre el índice de la clave primaria
+     *
+     * @param rowsPerRange Número de elementos de cada rango
+     * @return Primer id de cada rango, ordenados
+     */
+    @Override
+    public List<Long> findRangeStartIds(int rowsPerRange) throws SQLException {
+        if (rowsPerRange < 1) {
+            throw new IllegalArgumentException("El número de elementos por rango debe ser mayor que 0");
+        }
+        return database.query(CHUNK_START_IDS_SQL, res -> res.getLong(1), rowsPerRange);
+    }
+
+    /**
+     * Devuelve una página de elementos ordenados por id
+     * Usa paginación por clave: cada página continúa a partir del último id de la anterior usando el índice
+     * de la clave primaria, por lo que su coste no depende de la profundidad de la página
+     *
+     * @param pageToken Token de la página devuelto por la página anterior o null para la primera página
+     * @param pageSize  Número máximo de elementos de la página
+     * @return Página con los elementos y el token de la página siguiente
+     */
+    @Override
+    public Page<Funko> findAll(String pageToken, int pageSize) throws SQLException {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("El tamaño de página debe ser mayor que 0");
+        }
+        long afterId = pageToken == null ? 0 : decodePageToken(pageToken);
+        List<Long> ids = new ArrayList<>(pageSize + 1);
+        List<Funko> list = database.query(FIND_PAGE_SQL, res -> {
+            ids.add(res.getLong("id"));
+            return mapRow(res);
+        }, afterId, pageSize + 1);
+        if (list.size() <= pageSize) {
+            return new Page<>(list, null);
         }
-        database.commit();
-        return list;
+        list.remove(pageSize);
+        return new Page<>(list, encodePageToken(ids.get(pageSize - 1)));
     }
 
     /**
@@ -71,21 +226,48 @@ public class FunkoRepositoryImpl implements FunkoRepository {
      */
     @Override
     public Optional<Funko> findById(String id) throws SQLException {
-        Optional<Funko> optReturn = Optional.empty();
-        database.beginTransaction();
         var sql = "SELECT * FROM funko WHERE cod = ?";
-        var res = database.select(sql, id).orElseThrow();
-        if (res.next()) {
-            optReturn = Optional.of(Funko.builder()
-                    .cod(UUID.fromString(res.getString("cod")))
-                    .name(res.getString("nombre"))
-                    .model(Model.valueOf(res.getString("modelo")))
-                    .price(res.getDouble("precio"))
-                    .releaseDate(res.getDate("fecha_lanzamiento").toLocalDate())
-                    .build());
+        return database.queryFirst(sql, this::mapRow, id);
+    }
+
+    /**
+     * Busca varios elementos en el repositorio por su id con consultas WHERE cod IN (...) de hasta
+     * db.in.chunk.size ids
+     * El número de parámetros de cada consulta se redondea a la siguiente potencia de dos, repitiendo el último
+     * id, para que solo haya unas pocas sentencias distintas y se reutilicen desde la caché de sentencias.
+     * Los ids que no tienen formato de UUID no pueden existir y no se consultan
+     *
+     * @param ids Ids de los elementos a buscar
+     * @return Elementos encontrados por id
+     */
+    @Override
+    public Map<String, Funko> findAllById(Collection<String> ids) throws SQLException {
+        List<String> valid = new ArrayList<>(ids.size());
+        for (String id : new LinkedHashSet<>(ids)) {
+            if (isUuid(id)) {
+                valid.add(id);
+            }
+        }
+        Map<String, Funko> found = new HashMap<>(valid.size() * 2);
+        for (int from = 0; from < valid.size(); from += inChunkSize) {
+            List<String> chunk = valid.subList(from, Math.min(from + inChunkSize, valid.size()));
+            Object[] params = new Object[Math.min(Integer.highestOneBit(chunk.size() * 2 - 1), inChunkSize)];
+            for (int i = 0; i < params.length; i++) {
+                params[i] = chunk.get(Math.min(i, chunk.size() - 1));
+            }
+            String sql = "SELECT * FROM funko WHERE cod IN (" + "?,".repeat(params.length - 1) + "?)";
+            for (Funko funko : database.query(sql, this::mapRow, params)) {
+                found.put(funko.getCod().toString(), funko);
+            }
+        }
+        Map<String, Funko> result = new LinkedHashMap<>(found.size() * 2);
+        for (String id : valid) {
+            Funko funko = found.get(id.toLowerCase());
+            if (funko != null) {
+                result.put(id, funko);
+            }
         }
-        database.commit();
-        return optReturn;
+        return result;
     }
 
     /**
@@ -96,33 +278,159 @@ public class FunkoRepositoryImpl implements FunkoRepository {
      */
     @Override
     public Optional<Funko> save(Funko entity) throws SQLException {
-        var sql = "INSERT INTO funko (cod, nombre, modelo, precio, fecha_lanzamiento, created_at, updated_at) " +
-                "VALUES (?, ?, ?, ?, ?, ?, ?)";
-        database.beginTransaction();
-        database.insertAndGetKey(sql, entity.getCod().toString(),
+        database.insert(INSERT_SQL, writeParams(entity));
+        return Optional.of(entity);
+    }
+
+    /**
+     * Guarda varios elementos en el repositorio mediante lotes JDBC, con una transacción por lote
+     * Si un lote falla se deshace y sus filas se guardan una a una para saber cuáles han fallado
+     *
+     * @param entities Elementos a guardar
+     * @return Resultado con los elementos guardados y los fallidos
+     */
+    @Override
+    public BatchResult<Funko> saveAll(Collection<Funko> entities) throws SQLException {
+        return writeAll(INSERT_SQL, entities);
+    }
+
+    /**
+     * Guarda varios elementos en el repositorio, sustituyendo los que ya existen con el mismo cod, mediante
+     * lotes JDBC con una transacción por lote
+     * Los elementos existentes conservan su created_at
+     *
+     * @param entities Elementos a guardar
+     * @return Resultado con los elementos guardados y los fallidos
+     */
+    @Override
+    public BatchResult<Funko> upsertAll(Collection<Funko> entities) throws SQLException {
+        return writeAll(UPSERT_SQL, entities);
+    }
+
+    /**
+     * Escribe varios elementos por lotes de db.batch.size
+     *
+     * @param sql      Sentencia de inserción o de MERGE
+     * @param entities Elementos a escribir
+     * @return Resultado con los elementos guardados y los fallidos
+     */
+    private BatchResult<Funko> writeAll(String sql, Collection<Funko> entities) throws SQLException {
+        BatchResult<Funko> result = new BatchResult<>();
+        List<Funko> chunk = new ArrayList<>(Math.min(batchSize, entities.size()));
+        for (Funko entity : entities) {
+            chunk.add(entity);
+            if (chunk.size() == batchSize) {
+                writeChunk(sql, chunk, result);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(sql, chunk, result);
+        }
+        return result;
+    }
+
+    /**
+     * Escribe un lote de elementos en una única transacción
+     *
+     * @param sql    Sentencia de inserción o de MERGE
+     * @param chunk  Elementos del lote
+     * @param result Resultado al que se añaden los elementos guardados y fallidos
+     */
+    private void writeChunk(String sql, List<Funko> chunk, BatchResult<Funko> result) throws SQLException {
+        List<Object[]> params = new ArrayList<>(chunk.size());
+        for (Funko entity : chunk) {
+            params.add(writeParams(entity));
+        }
+        try {
+            database.inTransaction(() -> database.executeBatch(sql, params));
+        } catch (SQLException e) {
+            logger.warn("Lote de " + chunk.size() + " Funkos deshecho, se guardarán uno a uno: " + e.getMessage());
+            for (int i = 0; i < chunk.size(); i++) {
+                Funko entity = chunk.get(i);
+                try {
+                    database.insert(sql, params.get(i));
+                    result.addSaved(entity);
+                } catch (SQLException rowException) {
+                    result.addFailed(entity, rowException.getMessage());
+                }
+            }
+            return;
+        }
+        chunk.forEach(result::addSaved);
+    }
+
+    /**
+     * Devuelve los parámetros de la sentencia de inserción o de MERGE de un elemento
+     * Las fechas de creación y actualización las pone la base de datos
+     *
+     * @param entity Elemento a guardar
+     * @return Parámetros de la sentencia
+     */
+    private Object[] writeParams(Funko entity) {
+        return new Object[]{entity.getCod().toString(),
                 entity.getName(),
                 entity.getModel().toString(),
                 entity.getPrice(),
-                entity.getReleaseDate(),
-                LocalDateTime.now(),
-                LocalDateTime.now());
-        database.commit();
-        return Optional.of(entity);
+                entity.getReleaseDate()};
     }
 
     /**
      * Borra un elemento del repositorio
+     * En la misma transacción se registra el borrado en funko_tombstone para los backups incrementales
      *
      * @param id Id del elemento a borrar
      * @return ¿Borrado?
      */
     @Override
     public boolean delete(String id) throws SQLException {
-        var sql = "DELETE FROM funko WHERE cod= ?";
-        database.beginTransaction();
-        var rs = database.delete(sql, id);
-        database.commit();
-        return (rs == 1);
+        return database.inTransaction(() -> {
+            var rs = database.delete(DELETE_SQL, id);
+            if (rs == 1) {
+                database.insert(TOMBSTONE_SQL, id);
+            }
+            return rs == 1;
+        });
+    }
+
+    /**
+     * Borra varios elementos del repositorio mediante lotes JDBC de db.batch.size, con una transacción por lote
+     * Los borrados se registran en funko_tombstone igual que en delete. Los ids que no tienen formato de UUID
+     * no pueden existir y se ignoran
+     *
+     * @param ids Ids de los elementos a borrar
+     * @return Número de elementos borrados
+     */
+    @Override
+    public int deleteAll(Collection<String> ids) throws SQLException {
+        List<String> valid = new ArrayList<>(ids.size());
+        for (String id : new LinkedHashSet<>(ids)) {
+            if (isUuid(id)) {
+                valid.add(id);
+            }
+        }
+        int deleted = 0;
+        for (int from = 0; from < valid.size(); from += batchSize) {
+            List<String> chunk = valid.subList(from, Math.min(from + batchSize, valid.size()));
+            deleted += database.inTransaction(() -> {
+                List<Object[]> params = new ArrayList<>(chunk.size());
+                for (String id : chunk) {
+                    params.add(new Object[]{id});
+                }
+                int[] counts = database.executeBatch(DELETE_SQL, params);
+                List<Object[]> tombstones = new ArrayList<>(chunk.size());
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] == 1) {
+                        tombstones.add(new Object[]{chunk.get(i)});
+                    }
+                }
+                if (!tombstones.isEmpty()) {
+                    database.executeBatch(TOMBSTONE_SQL, tombstones);
+                }
+                return tombstones.size();
+            });
+        }
+        return deleted;
     }
 
     /**
@@ -134,32 +442,190 @@ public class FunkoRepositoryImpl implements FunkoRepository {
      */
     @Override
     public Optional<Funko> update(String id, Funko entity) throws SQLException {
-        var sql = "UPDATE funko SET nombre = ?, modelo = ?, precio = ?, fecha_lanzamiento = ?, " +
-                "updated_at = ? WHERE cod = ?";
-        database.beginTransaction();
-        database.update(sql,
+        database.update(UPDATE_SQL,
                 entity.getName(),
                 entity.getModel().toString(),
                 entity.getPrice(),
                 entity.getReleaseDate(),
-                LocalDateTime.now(),
                 id);
-        database.commit();
         return Optional.of(entity);
     }
 
 
     /**
-     * Busca un elemento en el repositorio por su nombre
+     * Busca los elementos cuyo nombre contiene el texto indicado, sin distinguir mayúsculas
+     * La búsqueda se hace en la base de datos, por lo que solo se transfieren las filas encontradas
      *
      * @param name Nombre del elemento a buscar
      * @return Lista de elementos encontrados
      */
     @Override
     public List<Funko> findByName(String name) throws SQLException {
-        return findAll().stream()
-                .filter(p -> p.getName().toLowerCase().contains(name.toLowerCase()))
-                .toList();
+        return findByNamePattern("%" + escapeLike(name) + "%");
+    }
+
+    /**
+     * Busca los elementos cuyo nombre empieza por el texto indicado, sin distinguir mayúsculas
+     * La búsqueda usa el índice de la columna nombre
+     *
+     * @param prefix Inicio del nombre de los elementos a buscar
+     * @return Lista de elementos encontrados
+     */
+    @Override
+    public List<Funko> findByNameStartingWith(String prefix) throws SQLException {
+        return findByNamePattern(escapeLike(prefix) + "%");
+    }
+
+    /**
+     * Busca los elementos cuyo nombre cumple un patrón LIKE
+     *
+     * @param pattern Patrón LIKE ya escapado
+     * @return Lista de elementos encontrados
+     */
+    private List<Funko> findByNamePattern(String pattern) throws SQLException {
+        return database.query(FIND_BY_NAME_SQL, this::mapRow, pattern);
+    }
+
+    /**
+     * Busca el elemento con el precio más alto
+     * Si hay varios con el mismo precio se devuelve el primero insertado
+     *
+     * @return Optional del elemento más caro
+     */
+    @Override
+    public Optional<Funko> findMostExpensive() throws SQLException {
+        return database.queryFirst(MOST_EXPENSIVE_SQL, this::mapRow);
+    }
+
+    /**
+     * Calcula el precio medio de los elementos en la base de datos
+     *
+     * @return Precio medio o vacío si no hay elementos
+     */
+    @Override
+    public OptionalDouble averagePrice() throws SQLException {
+        Optional<Double> average = database.queryFirst(AVERAGE_PRICE_SQL, res -> {
+            double value = res.getDouble(1);
+            return res.wasNull() ? null : value;
+        });
+        return average.map(OptionalDouble::of).orElseGet(OptionalDouble::empty);
+    }
+
+    /**
+     * Cuenta los elementos de cada modelo en la base de datos
+     * Los modelos sin elementos no aparecen en el resultado
+     *
+     * @return Número de elementos por modelo
+     */
+    @Override
+    public Map<Model, Long> countByModel() throws SQLException {
+        Map<Model, Long> counts = new EnumMap<>(Model.class);
+        for (Map.Entry<Model, Long> entry : database.query(COUNT_BY_MODEL_SQL,
+                res -> Map.entry(Model.valueOf(res.getString(1)), res.getLong(2)))) {
+            counts.put(entry.getKey(), entry.getValue());
+        }
+        return counts;
+    }
+
+    /**
+     * Busca los elementos lanzados en un año
+     * Se filtra por el rango de fechas del año para que la condición pueda usar el índice de la columna
+     *
+     * @param year Año de lanzamiento
+     * @return Lista de elementos encontrados
+     */
+    @Override
+    public List<Funko> findByReleaseYear(int year) throws SQLException {
+        LocalDate from = LocalDate.of(year, 1, 1);
+        return database.query(FIND_BY_RELEASE_DATE_SQL, this::mapRow, from, from.plusYears(1));
+    }
+
+    /**
+     * Cuenta los elementos cuyo nombre empieza por el texto indicado, sin distinguir mayúsculas
+     *
+     * @param prefix Inicio del nombre de los elementos a contar
+     * @return Número de elementos
+     */
+    @Override
+    public long countByNamePrefix(String prefix) throws SQLException {
+        return database.queryFirst(COUNT_BY_NAME_SQL, res -> res.getLong(1), escapeLike(prefix) + "%")
+                .orElse(0L);
+    }
+
+    /**
+     * Codifica el último id de una página como token de continuación
+     *
+     * @param lastId Último id de la página
+     * @return Token de la página siguiente
+     */
+    private static String encodePageToken(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Long.toString(lastId).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Decodifica un token de continuación
+     *
+     * @param pageToken Token de la página
+     * @return Último id de la página anterior
+     */
+    private static long decodePageToken(String pageToken) {
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(pageToken), StandardCharsets.US_ASCII));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Token de página no válido: " + pageToken, e);
+        }
+    }
+
+    /**
+     * Indica si un texto tiene el formato de un UUID
+     *
+     * @param id Texto a comprobar
+     * @return ¿Es un UUID?
+     */
+    private static boolean isUuid(String id) {
+        if (id == null || id.length() != 36) {
+            return false;
+        }
+        try {
+            UUID.fromString(id);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
     }
-}
 
+    /**
+     * Escapa los caracteres especiales de LIKE para buscar el texto de forma literal
+     *
+     * @param text Texto a escapar
+     * @return Texto escapado
+     */
+    private static String escapeLike(String text) {
+        StringBuilder escaped = new StringBuilder(text.length() + 8);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '%' || c == '_' || c == '\\') {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * Convierte la fila actual de un ResultSet en un Funko
+     *
+     * @param res ResultSet situado en la fila a convertir
+     * @return Funko de la fila
+     */
+    private Funko mapRow(ResultSet res) throws SQLException {
+        return Funko.builder()
+                .cod(UUID.fromString(res.getString("cod")))
+                .name(res.getString("nombre"))
+                .model(Model.valueOf(res.getString("modelo")))
+                .price(res.getDouble("precio"))
+                .releaseDate(res.getDate("fecha_lanzamiento").toLocalDate())
+                .build();
+    }
+}
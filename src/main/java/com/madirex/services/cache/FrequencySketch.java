@@ -0,0 +1,123 @@
+package com.madirex.services.cache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Estimador aproximado de la frecuencia de acceso de las claves (Count-Min Sketch de contadores de 4 bits)
+ * Cada clave incrementa un contador en cada una de las cuatro filas y su frecuencia es el mínimo de ellos.
+ * Cuando el número de accesos alcanza el tamaño de muestra, todos los contadores se dividen entre dos para
+ * que las claves que dejaron de usarse pierdan peso. Los contadores se actualizan con CAS, sin bloqueos
+ */
+final class FrequencySketch {
+    private static final long[] SEEDS = {0x97cb3127L, 0xc2b2ae35L, 0x85ebca6bL, 0x27d4eb2fL};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int MAX_COUNT = 15;
+    private final AtomicLongArray table;
+    private final int mask;
+    private final int sampleSize;
+    private final AtomicInteger additions = new AtomicInteger();
+
+    /**
+     * Constructor de la clase
+     *
+     * @param expectedEntries número de claves que se espera tener en la caché
+     */
+    FrequencySketch(long expectedEntries) {
+        int size = Integer.highestOneBit((int) Math.max(16, Math.min(expectedEntries, 1 << 24)) - 1) << 1;
+        this.table = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.sampleSize = 10 * size;
+    }
+
+    /**
+     * Registra un acceso a una clave
+     *
+     * @param hash hash de la clave
+     */
+    void increment(int hash) {
+        boolean added = false;
+        for (int row = 0; row < SEEDS.length; row++) {
+            added |= incrementAt(indexOf(hash, row), offsetOf(hash, row));
+        }
+        if (added && additions.incrementAndGet() >= sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * Devuelve la frecuencia estimada de una clave
+     *
+     * @param hash hash de la clave
+     * @return frecuencia estimada, entre 0 y 15
+     */
+    int frequency(int hash) {
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < SEEDS.length; row++) {
+            long word = table.get(indexOf(hash, row));
+            frequency = Math.min(frequency, (int) ((word >>> offsetOf(hash, row)) & 0xF));
+        }
+        return frequency;
+    }
+
+    /**
+     * Incrementa un contador si no ha llegado al máximo
+     *
+     * @param index  posición de la palabra en la tabla
+     * @param offset desplazamiento del contador dentro de la palabra
+     * @return ¿Incrementado?
+     */
+    private boolean incrementAt(int index, int offset) {
+        long word;
+        do {
+            word = table.get(index);
+            if (((word >>> offset) & 0xF) == MAX_COUNT) {
+                return false;
+            }
+        } while (!table.compareAndSet(index, word, word + (1L << offset)));
+        return true;
+    }
+
+    /**
+     * Divide entre dos todos los contadores
+     * Solo el hilo que consigue reiniciar el número de accesos realiza la división
+     */
+    private void reset() {
+        int current = additions.get();
+        if (current < sampleSize || !additions.compareAndSet(current, current / 2)) {
+            return;
+        }
+        for (int i = 0; i < table.length(); i++) {
+            long word;
+            do {
+                word = table.get(i);
+            } while (!table.compareAndSet(i, word, (word >>> 1) & RESET_MASK));
+        }
+    }
+
+    /**
+     * Devuelve la palabra de la tabla que corresponde a una clave en una fila
+     *
+     * @param hash hash de la clave
+     * @param row  fila del sketch
+     * @return posición de la palabra
+     */
+    private int indexOf(int hash, int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        h += h >>> 32;
+        return (int) h & mask;
+    }
+
+    /**
+     * Devuelve el desplazamiento del contador de una clave dentro de su palabra en una fila
+     * Cada fila usa uno de los cuatro grupos de cuatro contadores de la palabra
+     *
+     * @param hash hash de la clave
+     * @param row  fila del sketch
+     * @return desplazamiento en bits
+     */
+    private int offsetOf(int hash, int row) {
+        int spread = hash ^ (hash >>> 16);
+        return ((row << 2) + ((spread >>> (row << 3)) & 3)) << 2;
+    }
+}
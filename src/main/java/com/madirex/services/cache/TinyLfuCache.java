@@ -0,0 +1,737 @@
+package com.madirex.services.cache;
+
+import lombok.Builder;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Caché concurrente acotada por peso con desalojo CLOCK y admisión TinyLFU
+ * Las lecturas no bloquean: consultan un ConcurrentHashMap, marcan la entrada como referenciada y registran el
+ * acceso en un estimador de frecuencias. Las escrituras se serializan con un cerrojo. Cuando no hay espacio,
+ * la aguja del reloj da una segunda oportunidad a las entradas referenciadas y propone como víctima la primera
+ * que no lo está; la nueva entrada solo se admite si no se ha usado menos que la víctima, lo que evita que
+ * una ráfaga de claves de un solo uso desaloje las entradas más consultadas.
+ * Opcionalmente, las entradas caducan un tiempo después de escribirse y, si hay un cargador, las entradas que
+ * se leen pasado el tiempo de refresco se recargan en segundo plano mientras se sigue sirviendo el valor actual.
+ * Un hilo programado recarga esas entradas y retira periódicamente las caducadas.
+ * Para que una lectura lenta de la base de datos no guarde un valor antiguo después de que otro hilo lo haya
+ * modificado, cada escritura o invalidación de una clave incrementa su sello; putIfUnchanged solo guarda el
+ * valor si el sello no ha cambiado desde que se tomó, antes de leer el valor.
+ * Las cargas de get con cargador se agrupan por clave: si varios hilos fallan a la vez en la misma clave, solo
+ * el primero consulta el origen y el resto espera su resultado
+ *
+ * @param <K> Tipo de la clave
+ * @param <V> Tipo del valor
+ */
+public class TinyLfuCache<K, V> implements AutoCloseable {
+    private final Logger logger = LoggerFactory.getLogger(TinyLfuCache.class);
+    private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    private final Deque<Node<K, V>> clock = new ArrayDeque<>();
+    private static final int STAMP_STRIPES = 256;
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final AtomicLongArray stamps = new AtomicLongArray(STAMP_STRIPES);
+    private final FrequencySketch sketch;
+    private final long maxWeight;
+    private final Weigher<K, V> weigher;
+    private final long expireAfterWriteNanos;
+    private final long refreshAfterWriteNanos;
+    private final CacheLoader<K, V> loader;
+    private final LongSupplier ticker;
+    private final ScheduledExecutorService scheduler;
+    @Getter
+    private final Stats stats = new Stats();
+    private long totalWeight;
+
+    /**
+     * Constructor de la clase, con peso 1 por entrada
+     *
+     * @param maxSize número máximo de entradas
+     */
+    public TinyLfuCache(long maxSize) {
+        this(maxSize, null);
+    }
+
+    /**
+     * Constructor de la clase
+     *
+     * @param maxWeight peso máximo de la suma de las entradas
+     * @param weigher   cálculo del peso de cada entrada
+     */
+    public TinyLfuCache(long maxWeight, Weigher<K, V> weigher) {
+        this(maxWeight, weigher, null, null, null, null);
+    }
+
+    /**
+     * Constructor de la clase con caducidad y refresco
+     * Los parámetros nulos desactivan la opción correspondiente
+     *
+     * @param maxWeight         peso máximo de la suma de las entradas
+     * @param weigher           cálculo del peso de cada entrada o null para peso 1
+     * @param expireAfterWrite  tiempo tras la escritura en el que la entrada caduca
+     * @param refreshAfterWrite tiempo tras la escritura a partir del cual una lectura recarga la entrada
+     * @param loader            cargador usado para refrescar las entradas
+     * @param ticker            fuente de tiempo en nanosegundos o null para System.nanoTime
+     */
+    @Builder
+    private TinyLfuCache(long maxWeight, Weigher<K, V> weigher, Duration expireAfterWrite,
+                         Duration refreshAfterWrite, CacheLoader<K, V> loader, LongSupplier ticker) {
+        if (maxWeight < 1) {
+            throw new IllegalArgumentException("El peso máximo de la caché debe ser mayor que 0");
+        }
+        if (refreshAfterWrite != null && loader == null) {
+            throw new IllegalArgumentException("El refresco de la caché necesita un cargador");
+        }
+        this.maxWeight = maxWeight;
+        this.weigher = weigher == null ? (key, value) -> 1 : weigher;
+        this.sketch = new FrequencySketch(maxWeight);
+        this.expireAfterWriteNanos = expireAfterWrite == null ? 0 : expireAfterWrite.toNanos();
+        this.refreshAfterWriteNanos = refreshAfterWrite == null ? 0 : refreshAfterWrite.toNanos();
+        this.loader = loader;
+        this.ticker = ticker == null ? System::nanoTime : ticker;
+        if (expireAfterWriteNanos > 0 || refreshAfterWriteNanos > 0) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "funko-cache");
+                thread.setDaemon(true);
+                return thread;
+            });
+            if (expireAfterWriteNanos > 0) {
+                long period = Math.max(TimeUnit.SECONDS.toNanos(1), expireAfterWriteNanos / 2);
+                scheduler.scheduleAtFixedRate(this::cleanUp, period, period, TimeUnit.NANOSECONDS);
+            }
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * Devuelve el valor de una clave
+     *
+     * @param key clave a buscar
+     * @return valor guardado o null si no está en la caché
+     */
+    public V get(K key) {
+        sketch.increment(key.hashCode());
+        Node<K, V> node = data.get(key);
+        if (node == null) {
+            stats.misses.increment();
+            return null;
+        }
+        long now = ticker.getAsLong();
+        long age = now - node.writeTime;
+        if (expireAfterWriteNanos > 0 && age >= expireAfterWriteNanos) {
+            expire(node);
+            stats.misses.increment();
+            return null;
+        }
+        V value = node.value;
+        node.referenced = true;
+        stats.hits.increment();
+        if (refreshAfterWriteNanos > 0 && age >= refreshAfterWriteNanos) {
+            scheduleRefresh(node);
+        }
+        return value;
+    }
+
+    /**
+     * Guarda el valor de una clave
+     * Si la clave ya estaba se reemplaza su valor; si es nueva y no hay espacio puede no admitirse
+     *
+     * @param key   clave
+     * @param value valor
+     * @return ¿Guardado?
+     */
+    public boolean put(K key, V value) {
+        evictionLock.lock();
+        try {
+            stamps.incrementAndGet(stripeOf(key));
+            loading.remove(key);
+            return putLocked(key, value);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Devuelve el valor de una clave y, si no está en la caché, lo carga y lo guarda
+     * Si ya hay una carga en curso de la misma clave, se espera a su resultado en lugar de repetirla.
+     * Una escritura o invalidación de la clave descarta la carga en curso para las lecturas posteriores
+     *
+     * @param key    clave a buscar
+     * @param loader cargador del valor
+     * @return valor guardado o cargado, o null si no existe
+     * @throws Exception Error al cargar el valor
+     */
+    public V get(K key, CacheLoader<K, V> loader) throws Exception {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = loading.putIfAbsent(key, future);
+        if (inFlight != null) {
+            stats.coalescedLoads.increment();
+            return await(inFlight);
+        }
+        try {
+            long stamp = stamp(key);
+            stats.loads.increment();
+            value = loader.load(key);
+            if (value != null) {
+                putIfUnchanged(key, value, stamp);
+            }
+            future.complete(value);
+            return value;
+        } catch (Exception | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    /**
+     * Espera el resultado de una carga en curso de otro hilo
+     *
+     * @param inFlight carga en curso
+     * @return valor cargado o null si no existe
+     * @throws Exception Error de la carga o interrupción de la espera
+     */
+    private V await(CompletableFuture<V> inFlight) throws Exception {
+        try {
+            return inFlight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Guarda el valor de una clave solo si no se ha escrito ni invalidado desde que se tomó el sello
+     * El sello debe tomarse con stamp antes de leer el valor de su origen
+     *
+     * @param key   clave
+     * @param value valor leído
+     * @param stamp sello tomado antes de leer el valor
+     * @return ¿Guardado?
+     */
+    public boolean putIfUnchanged(K key, V value, long stamp) {
+        evictionLock.lock();
+        try {
+            if (stamps.get(stripeOf(key)) != stamp) {
+                return false;
+            }
+            return putLocked(key, value);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Devuelve el sello actual de una clave
+     * Claves distintas pueden compartir sello, lo que solo provoca que algún valor no se guarde
+     *
+     * @param key clave
+     * @return sello de la clave
+     */
+    public long stamp(K key) {
+        return stamps.get(stripeOf(key));
+    }
+
+    /**
+     * Guarda el valor de una clave
+     * Debe llamarse con el cerrojo tomado
+     *
+     * @param key   clave
+     * @param value valor
+     * @return ¿Guardado?
+     */
+    private boolean putLocked(K key, V value) {
+        int weight = weigher.weigh(key, value);
+        Node<K, V> existing = data.get(key);
+        if (existing != null) {
+            totalWeight += weight - existing.weight;
+            existing.value = value;
+            existing.weight = weight;
+            existing.writeTime = ticker.getAsLong();
+            existing.referenced = true;
+            evictWhileOverweight(existing);
+            return true;
+        }
+        if (weight > maxWeight || !makeRoom(key, weight)) {
+            stats.rejections.increment();
+            return false;
+        }
+        Node<K, V> node = new Node<>(key, value, weight, ticker.getAsLong());
+        data.put(key, node);
+        clock.addLast(node);
+        totalWeight += weight;
+        return true;
+    }
+
+    /**
+     * Elimina una clave de la caché e invalida las lecturas de esa clave que estén en curso
+     *
+     * @param key clave a eliminar
+     * @return valor eliminado o null si no estaba
+     */
+    public V remove(K key) {
+        evictionLock.lock();
+        try {
+            stamps.incrementAndGet(stripeOf(key));
+            loading.remove(key);
+            Node<K, V> node = data.remove(key);
+            if (node == null) {
+                return null;
+            }
+            unlink(node);
+            return node.value;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Elimina todas las entradas de la caché e invalida las lecturas que estén en curso
+     */
+    public void clear() {
+        evictionLock.lock();
+        try {
+            for (int i = 0; i < STAMP_STRIPES; i++) {
+                stamps.incrementAndGet(i);
+            }
+            loading.clear();
+            data.values().forEach(node -> node.removed = true);
+            data.clear();
+            clock.clear();
+            totalWeight = 0;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Retira las entradas caducadas
+     * Lo ejecuta periódicamente el hilo de la caché; las entradas caducadas también se detectan al leerlas
+     */
+    public void cleanUp() {
+        if (expireAfterWriteNanos == 0) {
+            return;
+        }
+        long now = ticker.getAsLong();
+        for (Node<K, V> node : data.values()) {
+            if (now - node.writeTime >= expireAfterWriteNanos) {
+                expire(node);
+            }
+        }
+    }
+
+    /**
+     * Detiene el hilo de caducidad y refresco de la caché
+     */
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Devuelve el número de entradas de la caché
+     *
+     * @return número de entradas
+     */
+    public int size() {
+        return data.size();
+    }
+
+    /**
+     * Devuelve el número de nodos del reloj, incluidos los de entradas retiradas que aún no se han purgado
+     * Sirve para vigilar que la memoria de la caché sigue acotada
+     *
+     * @return número de nodos del reloj
+     */
+    public int clockSize() {
+        evictionLock.lock();
+        try {
+            return clock.size();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Indica si una clave está en la caché, sin contarlo como acceso
+     *
+     * @param key clave a buscar
+     * @return ¿Está en la caché?
+     */
+    public boolean containsKey(K key) {
+        return data.containsKey(key);
+    }
+
+    /**
+     * Devuelve la franja de sellos de una clave
+     *
+     * @param key clave
+     * @return posición del sello
+     */
+    private static int stripeOf(Object key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (STAMP_STRIPES - 1);
+    }
+
+    /**
+     * Retira una entrada caducada si sigue siendo la entrada actual de su clave
+     *
+     * @param node entrada caducada
+     */
+    private void expire(Node<K, V> node) {
+        evictionLock.lock();
+        try {
+            if (!node.removed && data.remove(node.key, node)) {
+                unlink(node);
+                stats.expirations.increment();
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Marca como retirada una entrada que ya se ha quitado del mapa y descuenta su peso
+     * Los nodos retirados se quedan en el reloj hasta que la aguja los alcanza; cuando superan a las entradas
+     * vivas se purgan todos de una vez, de modo que el reloj no crece aunque las entradas solo caduquen o se
+     * borren y nunca haya que desalojar. Debe llamarse con el cerrojo tomado
+     *
+     * @param node entrada retirada
+     */
+    private void unlink(Node<K, V> node) {
+        node.removed = true;
+        totalWeight -= node.weight;
+        if (clock.size() > 2 * data.size() + 16) {
+            clock.removeIf(n -> n.removed);
+        }
+    }
+
+    /**
+     * Programa la recarga en segundo plano de una entrada, si no hay otra recarga en curso
+     * Si el valor recargado ya no existe, la entrada se elimina; si la recarga falla, se conserva el valor
+     * actual hasta que caduque
+     *
+     * @param node entrada a recargar
+     */
+    private void scheduleRefresh(Node<K, V> node) {
+        if (!node.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        long startTime = node.writeTime;
+        try {
+            scheduler.execute(() -> {
+                try {
+                    V value = loader.load(node.key);
+                    evictionLock.lock();
+                    try {
+                        if (node.removed || node.writeTime != startTime) {
+                            return;
+                        }
+                        if (value == null) {
+                            data.remove(node.key, node);
+                            unlink(node);
+                        } else {
+                            int weight = weigher.weigh(node.key, value);
+                            totalWeight += weight - node.weight;
+                            node.value = value;
+                            node.weight = weight;
+                            node.writeTime = ticker.getAsLong();
+                            evictWhileOverweight(node);
+                        }
+                        stats.refreshes.increment();
+                    } finally {
+                        evictionLock.unlock();
+                    }
+                } catch (Exception e) {
+                    String strError = "Error al refrescar la entrada " + node.key + " de la caché: " + e;
+                    logger.warn(strError);
+                } finally {
+                    node.refreshing.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            node.refreshing.set(false);
+        }
+    }
+
+    /**
+     * Libera espacio para una entrada nueva desalojando víctimas menos frecuentes que ella
+     * Debe llamarse con el cerrojo tomado
+     *
+     * @param key    clave de la entrada nueva
+     * @param weight peso de la entrada nueva
+     * @return ¿Hay espacio para la entrada?
+     */
+    private boolean makeRoom(K key, int weight) {
+        int candidateFrequency = sketch.frequency(key.hashCode());
+        while (totalWeight + weight > maxWeight) {
+            Node<K, V> victim = nextVictim();
+            if (candidateFrequency < sketch.frequency(victim.key.hashCode())) {
+                clock.addFirst(victim);
+                return false;
+            }
+            evict(victim);
+        }
+        return true;
+    }
+
+    /**
+     * Desaloja entradas hasta que el peso total no supera el máximo, sin desalojar la entrada indicada
+     * Debe llamarse con el cerrojo tomado
+     *
+     * @param keep entrada que acaba de cambiar de peso
+     */
+    private void evictWhileOverweight(Node<K, V> keep) {
+        int attempts = clock.size();
+        while (totalWeight > maxWeight && attempts-- > 0) {
+            Node<K, V> victim = nextVictim();
+            if (victim == keep) {
+                clock.addLast(victim);
+            } else {
+                evict(victim);
+            }
+        }
+    }
+
+    /**
+     * Avanza la aguja del reloj hasta encontrar una entrada no referenciada
+     * Las entradas referenciadas pierden la marca y pasan al final; como mucho se dan dos vueltas
+     * Debe llamarse con el cerrojo tomado
+     *
+     * @return víctima propuesta, ya retirada del reloj
+     */
+    private Node<K, V> nextVictim() {
+        int budget = 2 * clock.size() + 1;
+        while (true) {
+            Node<K, V> node = clock.pollFirst();
+            if (node.removed) {
+                continue;
+            }
+            if (node.referenced && budget-- > 0) {
+                node.referenced = false;
+                clock.addLast(node);
+                continue;
+            }
+            return node;
+        }
+    }
+
+    /**
+     * Desaloja una entrada
+     * Debe llamarse con el cerrojo tomado
+     *
+     * @param victim entrada a desalojar, ya retirada del reloj
+     */
+    private void evict(Node<K, V> victim) {
+        data.remove(victim.key, victim);
+        victim.removed = true;
+        totalWeight -= victim.weight;
+        stats.evictions.increment();
+    }
+
+    /**
+     * Cálculo del peso de una entrada
+     *
+     * @param <K> Tipo de la clave
+     * @param <V> Tipo del valor
+     */
+    @FunctionalInterface
+    public interface Weigher<K, V> {
+        /**
+         * Devuelve el peso de una entrada
+         *
+         * @param key   clave
+         * @param value valor
+         * @return peso de la entrada, mayor o igual que 0
+         */
+        int weigh(K key, V value);
+    }
+
+    /**
+     * Cargador de los valores de la caché
+     *
+     * @param <K> Tipo de la clave
+     * @param <V> Tipo del valor
+     */
+    @FunctionalInterface
+    public interface CacheLoader<K, V> {
+        /**
+         * Carga el valor de una clave
+         *
+         * @param key clave
+         * @return valor cargado o null si ya no existe
+         * @throws Exception Error al cargar el valor
+         */
+        V load(K key) throws Exception;
+    }
+
+    /**
+     * Entrada de la caché
+     *
+     * @param <K> Tipo de la clave
+     * @param <V> Tipo del valor
+     */
+    private static final class Node<K, V> {
+        private final K key;
+        private volatile V value;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private volatile boolean referenced;
+        private volatile long writeTime;
+        private volatile boolean removed;
+        private int weight;
+
+        /**
+         * Constructor de la clase
+         *
+         * @param key       clave
+         * @param value     valor
+         * @param weight    peso de la entrada
+         * @param writeTime instante de la escritura en nanosegundos
+         */
+        private Node(K key, V value, int weight, long writeTime) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.writeTime = writeTime;
+        }
+    }
+
+    /**
+     * Contadores de aciertos, fallos, desalojos y entradas no admitidas de la caché
+     */
+    public static class Stats {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+        private final LongAdder rejections = new LongAdder();
+        private final LongAdder expirations = new LongAdder();
+        private final LongAdder refreshes = new LongAdder();
+        private final LongAdder loads = new LongAdder();
+        private final LongAdder coalescedLoads = new LongAdder();
+
+        /**
+         * Devuelve el número de lecturas que se han encontrado en la caché
+         *
+         * @return número de aciertos
+         */
+        public long getHits() {
+            return hits.sum();
+        }
+
+        /**
+         * Devuelve el número de lecturas que no se han encontrado en la caché
+         *
+         * @return número de fallos
+         */
+        public long getMisses() {
+            return misses.sum();
+        }
+
+        /**
+         * Devuelve el número de entradas desalojadas por falta de espacio
+         *
+         * @return número de desalojos
+         */
+        public long getEvictions() {
+            return evictions.sum();
+        }
+
+        /**
+         * Devuelve el número de entradas nuevas que no se han admitido por ser menos frecuentes que la víctima
+         *
+         * @return número de entradas no admitidas
+         */
+        public long getRejections() {
+            return rejections.sum();
+        }
+
+        /**
+         * Devuelve el número de entradas retiradas por caducar
+         *
+         * @return número de entradas caducadas
+         */
+        public long getExpirations() {
+            return expirations.sum();
+        }
+
+        /**
+         * Devuelve el número de entradas recargadas en segundo plano
+         *
+         * @return número de refrescos
+         */
+        public long getRefreshes() {
+            return refreshes.sum();
+        }
+
+        /**
+         * Devuelve el número de cargas del origen realizadas por get con cargador
+         *
+         * @return número de cargas
+         */
+        public long getLoads() {
+            return loads.sum();
+        }
+
+        /**
+         * Devuelve el número de lecturas que han esperado a la carga en curso de otro hilo en lugar de cargar
+         *
+         * @return número de cargas agrupadas
+         */
+        public long getCoalescedLoads() {
+            return coalescedLoads.sum();
+        }
+
+        /**
+         * Devuelve la proporción de lecturas que se han encontrado en la caché
+         *
+         * @return tasa de aciertos entre 0 y 1
+         */
+        public double getHitRate() {
+            long hitCount = getHits();
+            long total = hitCount + getMisses();
+            return total == 0 ? 0 : (double) hitCount / total;
+        }
+
+        /**
+         * Devuelve un resumen de los contadores
+         *
+         * @return resumen de los contadores
+         */
+        @Override
+        public String toString() {
+            return String.format("Caché: %d aciertos, %d fallos (%.1f%%), %d desalojos, %d no admitidas, "
+                            + "%d caducadas, %d refrescadas, %d cargas, %d cargas agrupadas",
+                    getHits(), getMisses(), getHitRate() * 100, getEvictions(), getRejections(),
+                    getExpirations(), getRefreshes(), getLoads(), getCoalescedLoads());
+        }
+    }
+}
@@ -2,20 +2,69 @@ package com.madirex.services.crud.funko;
 
 import com.madirex.exceptions.FunkoException;
 import com.madirex.exceptions.FunkoNotFoundException;
+import com.madirex.models.BackupIncrement;
+import com.madirex.models.BackupManifest;
+import com.madirex.models.BatchResult;
 import com.madirex.models.Funko;
+import com.madirex.models.Model;
+import com.madirex.models.Page;
+import com.madirex.models.RestoreReport;
 import com.madirex.services.crud.BaseCRUDService;
 
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.stream.Stream;
 
 /**
  * Interfaz que define las operaciones CRUD de FunkoService
  */
-public interface FunkoService extends BaseCRUDService<Funko, FunkoException> {
+public interface FunkoService extends BaseCRUDService<Funko, FunkoException>, AutoCloseable {
+
+    Page<Funko> findAll(String pageToken, int pageSize) throws SQLException;
+
+    Stream<Funko> streamAll() throws SQLException;
+
+    Map<String, Funko> findAllById(Collection<String> ids) throws SQLException;
 
     List<Funko> findByName(String nombre) throws SQLException, FunkoNotFoundException;
 
+    List<Funko> findByNameStartingWith(String prefix) throws SQLException, FunkoNotFoundException;
+
     void backup(String path, String fileName) throws SQLException, IOException;
 
+    RestoreReport restore(String path) throws SQLException, IOException;
+
+    long backupSnapshot(String path, String fileName) throws SQLException, IOException;
+
+    RestoreReport restoreSnapshot(String path) throws SQLException, IOException;
+
+    BackupIncrement backupIncremental(String directory) throws SQLException, IOException;
+
+    RestoreReport restoreIncremental(String directory) throws SQLException, IOException;
+
+    BackupManifest backupChunked(String path, String name) throws SQLException, IOException;
+
+    RestoreReport restoreChunked(String directory) throws SQLException, IOException;
+
+    BatchResult<Funko> saveAll(Collection<Funko> funkos) throws SQLException;
+
+    int deleteAll(Collection<String> ids) throws SQLException;
+
+    Optional<Funko> findMostExpensive() throws SQLException;
+
+    OptionalDouble averagePrice() throws SQLException;
+
+    Map<Model, Long> countByModel() throws SQLException;
+
+    List<Funko> findByReleaseYear(int year) throws SQLException;
+
+    long countByNamePrefix(String prefix) throws SQLException;
+
+    @Override
+    void close();
 }
\ No newline at end of file
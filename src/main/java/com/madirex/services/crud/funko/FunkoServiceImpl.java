@@ -2,51 +2,137 @@ package com.madirex.services.crud.funko;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import com.madirex.exceptions.FunkoNotFoundException;
 import com.madirex.exceptions.FunkoNotRemovedException;
 import com.madirex.exceptions.FunkoNotSavedException;
 import com.madirex.exceptions.FunkoNotValidException;
+import com.madirex.models.BackupIncrement;
+import com.madirex.models.BackupManifest;
+import com.madirex.models.BatchResult;
 import com.madirex.models.Funko;
+import com.madirex.models.Model;
+import com.madirex.models.Page;
+import com.madirex.models.RestoreReport;
 import com.madirex.repositories.funko.FunkoRepository;
+import com.madirex.services.cache.TinyLfuCache;
+import com.madirex.services.io.BackupFiles;
+import com.madirex.services.io.ChunkedBackup;
+import com.madirex.services.io.FunkoSnapshotReader;
+import com.madirex.services.io.FunkoSnapshotWriter;
+import com.madirex.services.io.IncrementalBackup;
+import com.madirex.utils.ApplicationProperties;
 import com.madirex.utils.LocalDateAdapter;
+import com.madirex.validators.FunkoValidator;
 import lombok.Getter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
 
 /**
  * Implementación de la interfaz FunkoService
  */
 public class FunkoServiceImpl implements FunkoService {
-    private static final int CACHE_SIZE = 25;
-
     @Getter
-    private final Map<String, Funko> cache;
+    private final TinyLfuCache<String, Funko> cache;
+    @Getter
+    private final TinyLfuCache<String, Boolean> missingIds;
     private final Logger logger = LoggerFactory.getLogger(FunkoServiceImpl.class);
     private final FunkoRepository funkoRepository;
+    private final TinyLfuCache.CacheLoader<String, Funko> loader;
+    private final Gson backupGson = new GsonBuilder()
+            .registerTypeAdapter(LocalDate.class, new LocalDateAdapter())
+            .create();
+    private final boolean prettyBackup;
+    private final int restoreChunkSize;
+    private final ChunkedBackup chunkedBackup;
+    private final IncrementalBackup incrementalBackup;
 
     /**
      * Constructor de la clase
+     * La caché se configura con las propiedades cache.max.size (número de Funkos), cache.expire.seconds
+     * (segundos tras los que una entrada caduca) y cache.refresh.seconds (segundos tras los que una entrada
+     * leída se recarga en segundo plano desde el repositorio). Un valor 0 desactiva la caducidad o el refresco.
+     * Los ids que no existen se recuerdan durante cache.negative.seconds segundos, hasta un máximo de
+     * cache.negative.max.size ids; un valor 0 desactiva esta caché negativa
      *
      * @param funkoRepository Instancia de la clase FunkoRepository
      */
     public FunkoServiceImpl(FunkoRepository funkoRepository) {
+        this(funkoRepository, null);
+    }
+
+    /**
+     * Constructor de la clase con la fuente de tiempo de las cachés
+     *
+     * @param funkoRepository Instancia de la clase FunkoRepository
+     * @param ticker          Fuente de tiempo en nanosegundos de las cachés o null para System.nanoTime
+     */
+    public FunkoServiceImpl(FunkoRepository funkoRepository, LongSupplier ticker) {
         this.funkoRepository = funkoRepository;
-        this.cache = new LinkedHashMap<>(CACHE_SIZE, 0.75f, true) {
-            @Override
-            protected boolean removeEldestEntry(Map.Entry<String, Funko> eldest) {
-                return size() > CACHE_SIZE;
-            }
-        };
+        this.loader = id -> funkoRepository.findById(id).orElse(null);
+        ApplicationProperties properties = ApplicationProperties.getInstance();
+        this.prettyBackup = Boolean.parseBoolean(properties.readProperty("backup.pretty", "true"));
+        this.restoreChunkSize = Integer.parseInt(properties.readProperty("restore.chunk.size", "1000"));
+        this.chunkedBackup = new ChunkedBackup(funkoRepository, backupGson,
+                Integer.parseInt(properties.readProperty("backup.chunk.rows", "100000")),
+                Integer.parseInt(properties.readProperty("backup.workers", "4")));
+        this.incrementalBackup = new IncrementalBackup(funkoRepository, backupGson, prettyBackup,
+                Duration.ofMillis(Long.parseLong(properties.readProperty("backup.incremental.lag.ms", "1000"))),
+                restoreChunkSize);
+        long expireSeconds = Long.parseLong(properties.readProperty("cache.expire.seconds", "300"));
+        long refreshSeconds = Long.parseLong(properties.readProperty("cache.refresh.seconds", "60"));
+        this.cache = TinyLfuCache.<String, Funko>builder()
+                .maxWeight(Long.parseLong(properties.readProperty("cache.max.size", "1000")))
+                .expireAfterWrite(expireSeconds > 0 ? Duration.ofSeconds(expireSeconds) : null)
+                .refreshAfterWrite(refreshSeconds > 0 ? Duration.ofSeconds(refreshSeconds) : null)
+                .loader(loader)
+                .ticker(ticker)
+                .build();
+        long negativeSeconds = Long.parseLong(properties.readProperty("cache.negative.seconds", "30"));
+        this.missingIds = negativeSeconds > 0 ? TinyLfuCache.<String, Boolean>builder()
+                .maxWeight(Long.parseLong(properties.readProperty("cache.negative.max.size", "1000")))
+                .expireAfterWrite(Duration.ofSeconds(negativeSeconds))
+                .ticker(ticker)
+                .build() : null;
+    }
+
+    /**
+     * Detiene los hilos de caducidad, refresco y limpieza de las cachés
+     * Después de cerrar el servicio las cachés siguen respondiendo, pero ya no caducan ni refrescan entradas
+     * en segundo plano
+     */
+    @Override
+    public void close() {
+        cache.close();
+        if (missingIds != null) {
+            missingIds.close();
+        }
     }
 
     /**
@@ -60,6 +146,31 @@ public class FunkoServiceImpl implements FunkoService {
         return funkoRepository.findAll();
     }
 
+    /**
+     * Devuelve una página de elementos del repositorio
+     *
+     * @param pageToken Token de la página devuelto por la página anterior o null para la primera página
+     * @param pageSize  Número máximo de elementos de la página
+     * @return Página con los elementos y el token de la página siguiente
+     */
+    @Override
+    public Page<Funko> findAll(String pageToken, int pageSize) throws SQLException {
+        logger.debug("Obteniendo una página de " + pageSize + " Funkos");
+        return funkoRepository.findAll(pageToken, pageSize);
+    }
+
+    /**
+     * Devuelve todos los elementos como un Stream que se lee de la base de datos bajo demanda
+     * El Stream debe cerrarse para liberar la conexión
+     *
+     * @return Stream de los elementos
+     */
+    @Override
+    public Stream<Funko> streamAll() throws SQLException {
+        logger.debug("Recorriendo todos los Funkos con un cursor");
+        return funkoRepository.streamAll();
+    }
+
     /**
      * Busca un elemento en el repositorio por su nombre
      *
@@ -68,39 +179,386 @@ public class FunkoServiceImpl implements FunkoService {
      */
     @Override
     public List<Funko> findByName(String name) throws SQLException, FunkoNotFoundException {
-        logger.debug("Obteniendo todos los Funkos ordenados por nombre");
+        logger.debug("Obteniendo los Funkos por nombre");
         var list = funkoRepository.findByName(name);
         if (list.isEmpty()) {
             throw new FunkoNotFoundException("No se ha encontrado el Funko con nombre " + name);
         }
-        return funkoRepository.findByName(name);
+        return list;
+    }
+
+    /**
+     * Busca los elementos cuyo nombre empieza por el texto indicado
+     *
+     * @param prefix Inicio del nombre de los elementos a buscar
+     * @return Lista de elementos encontrados
+     */
+    @Override
+    public List<Funko> findByNameStartingWith(String prefix) throws SQLException, FunkoNotFoundException {
+        logger.debug("Obteniendo los Funkos cuyo nombre empieza por " + prefix);
+        var list = funkoRepository.findByNameStartingWith(prefix);
+        if (list.isEmpty()) {
+            throw new FunkoNotFoundException("No se ha encontrado ningún Funko cuyo nombre empiece por " + prefix);
+        }
+        return list;
+    }
+
+    /**
+     * Devuelve el elemento con el precio más alto
+     *
+     * @return Optional del elemento más caro
+     */
+    @Override
+    public Optional<Funko> findMostExpensive() throws SQLException {
+        logger.debug("Obteniendo el Funko más caro");
+        return funkoRepository.findMostExpensive();
+    }
+
+    /**
+     * Devuelve el precio medio de los elementos
+     *
+     * @return Precio medio o vacío si no hay elementos
+     */
+    @Override
+    public OptionalDouble averagePrice() throws SQLException {
+        logger.debug("Obteniendo el precio medio de los Funkos");
+        return funkoRepository.averagePrice();
+    }
+
+    /**
+     * Devuelve el número de elementos de cada modelo
+     *
+     * @return Número de elementos por modelo
+     */
+    @Override
+    public Map<Model, Long> countByModel() throws SQLException {
+        logger.debug("Obteniendo el número de Funkos por modelo");
+        return funkoRepository.countByModel();
+    }
+
+    /**
+     * Devuelve los elementos lanzados en un año
+     *
+     * @param year Año de lanzamiento
+     * @return Lista de elementos encontrados
+     */
+    @Override
+    public List<Funko> findByReleaseYear(int year) throws SQLException {
+        logger.debug("Obteniendo los Funkos lanzados en " + year);
+        return funkoRepository.findByReleaseYear(year);
+    }
+
+    /**
+     * Devuelve el número de elementos cuyo nombre empieza por el texto indicado
+     *
+     * @param prefix Inicio del nombre de los elementos a contar
+     * @return Número de elementos
+     */
+    @Override
+    public long countByNamePrefix(String prefix) throws SQLException {
+        logger.debug("Contando los Funkos cuyo nombre empieza por " + prefix);
+        return funkoRepository.countByNamePrefix(prefix);
     }
 
     /**
      * Realiza un backup de los datos del repositorio
+     * Los Funkos se leen con un cursor y se escriben uno a uno en un fichero temporal del mismo directorio,
+     * que sustituye al backup anterior al terminar, por lo que la memoria usada no depende del tamaño del
+     * catálogo y un backup a medias nunca reemplaza al anterior. Con backup.pretty=false se escribe sin
+     * sangría
      *
      * @param path     Ruta del directorio donde se guardará el backup
      * @param fileName Nombre del archivo del backup
      */
     @Override
     public void backup(String path, String fileName) throws SQLException, IOException {
-        File dataDir = new File(path);
-        if (dataDir.exists()) {
-            String dest = path + File.separator + fileName;
-            Gson gson = new GsonBuilder()
-                    .registerTypeAdapter(LocalDate.class, new LocalDateAdapter())
-                    .setPrettyPrinting()
-                    .create();
-            String json = gson.toJson(findAll());
-            Files.writeString(new File(dest).toPath(), json);
-            logger.debug("Backup realizado con éxito");
+        Path dir = Path.of(path);
+        if (!Files.isDirectory(dir)) {
+            throw new IOException("El directorio del backup no existe: " + path);
+        }
+        Path temp = Files.createTempFile(dir, fileName, ".tmp");
+        try {
+            try (Stream<Funko> funkos = funkoRepository.streamAll();
+                 JsonWriter writer = new JsonWriter(Files.newBufferedWriter(temp, StandardCharsets.UTF_8))) {
+                if (prettyBackup) {
+                    writer.setIndent("  ");
+                }
+                writer.beginArray();
+                funkos.forEach(funko -> backupGson.toJson(funko, Funko.class, writer));
+                writer.endArray();
+            } catch (JsonIOException e) {
+                throw e.getCause() instanceof IOException cause ? cause : new IOException(e);
+            }
+            BackupFiles.moveAtomically(temp, dir.resolve(fileName));
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        logger.debug("Backup realizado con éxito");
+    }
+
+    /**
+     * Restaura en el repositorio los Funkos de un backup
+     * El backup se lee elemento a elemento y los Funkos válidos se guardan por bloques de restore.chunk.size
+     * con saveAll, que usa una transacción por lote, por lo que en memoria solo hay un bloque cada vez.
+     * Los Funkos cuyo cod ya existe en la base de datos cuentan como fallidos
+     *
+     * @param path Ruta del archivo del backup
+     * @return Informe de la restauración
+     */
+    @Override
+    public RestoreReport restore(String path) throws SQLException, IOException {
+        logger.debug("Restaurando backup " + path);
+        long start = System.currentTimeMillis();
+        RestoreCounters counters = new RestoreCounters();
+        try (JsonReader reader = new JsonReader(Files.newBufferedReader(Path.of(path), StandardCharsets.UTF_8))) {
+            restoreFrom(reader, counters);
+        } catch (JsonParseException | IllegalStateException | DateTimeParseException e) {
+            throw new IOException("El backup " + path + " no es válido: " + e.getMessage(), e);
+        }
+        RestoreReport report = counters.toReport(start);
+        logger.info(report.toString());
+        return report;
+    }
+
+    /**
+     * Realiza un backup de la base de datos en un snapshot binario
+     * Los Funkos se escriben con FunkoSnapshotWriter a medida que se leen de la base de datos, en un fichero
+     * temporal que sustituye al snapshot anterior solo si se ha escrito entero
+     *
+     * @param path     Ruta del directorio donde se guardará el snapshot
+     * @param fileName Nombre del archivo del snapshot
+     * @return número de Funkos escritos
+     */
+    @Override
+    public long backupSnapshot(String path, String fileName) throws SQLException, IOException {
+        Path dir = Path.of(path);
+        if (!Files.isDirectory(dir)) {
+            throw new IOException("El directorio del backup no existe: " + path);
+        }
+        Path temp = Files.createTempFile(dir, fileName, ".tmp");
+        try {
+            long rows;
+            try (Stream<Funko> funkos = funkoRepository.streamAll();
+                 FunkoSnapshotWriter writer = new FunkoSnapshotWriter(temp)) {
+                Iterator<Funko> iterator = funkos.iterator();
+                while (iterator.hasNext()) {
+                    writer.write(iterator.next());
+                }
+                rows = writer.finish();
+            }
+            BackupFiles.moveAtomically(temp, dir.resolve(fileName));
+            logger.debug("Snapshot realizado con éxito: " + rows + " Funkos");
+            return rows;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Restaura en el repositorio los Funkos de un snapshot binario
+     * El snapshot se lee una primera vez sin guardar nada para comprobar el número de Funkos y el CRC32 del
+     * final, de modo que un snapshot dañado no se restaura en parte; después se vuelve a leer registro a
+     * registro y se restaura igual que un backup JSON
+     *
+     * @param path Ruta del archivo del snapshot
+     * @return Informe de la restauración
+     */
+    @Override
+    public RestoreReport restoreSnapshot(String path) throws SQLException, IOException {
+        logger.debug("Restaurando snapshot " + path);
+        long start = System.currentTimeMillis();
+        RestoreCounters counters = new RestoreCounters();
+        FunkoSnapshotReader.verify(Path.of(path));
+        try (FunkoSnapshotReader reader = new FunkoSnapshotReader(Path.of(path))) {
+            restoreFrom(reader::read, counters, false);
+        }
+        RestoreReport report = counters.toReport(start);
+        logger.info(report.toString());
+        return report;
+    }
+
+    /**
+     * Añade un backup a la cadena de backups incrementales del directorio
+     * El primer backup de la cadena es completo; cada uno de los siguientes contiene los Funkos cuyo updated_at
+     * es posterior a la marca del anterior y los borrados registrados desde entonces, leídos en una misma
+     * transacción de solo lectura. La marca de cada backup es la hora de la base de datos al empezar menos
+     * backup.incremental.lag.ms, para que no se pierdan las escrituras que aún no estaban confirmadas
+     *
+     * @param directory Ruta del directorio de la cadena de backups
+     * @return Backup realizado
+     */
+    @Override
+    public BackupIncrement backupIncremental(String directory) throws SQLException, IOException {
+        Path dir = Path.of(directory);
+        if (!Files.isDirectory(dir)) {
+            throw new IOException("El directorio del backup no existe: " + directory);
+        }
+        logger.debug("Realizando backup incremental en " + dir);
+        BackupIncrement increment = incrementalBackup.write(dir);
+        logger.debug("Backup incremental " + increment.file() + " realizado con éxito: " + increment.rows()
+                + " Funkos y " + increment.deleted() + " borrados desde " + increment.since());
+        return increment;
+    }
+
+    /**
+     * Restaura en el repositorio una cadena de backups incrementales
+     * Los backups se aplican en orden: primero los borrados de cada uno, por bloques de restore.chunk.size, y
+     * después sus Funkos, que sustituyen a los que ya existen con el mismo cod. Una cadena incompleta se detecta
+     * en el primer hueco
+     *
+     * @param directory Ruta del directorio de la cadena de backups
+     * @return Informe de la restauración
+     */
+    @Override
+    public RestoreReport restoreIncremental(String directory) throws SQLException, IOException {
+        logger.debug("Restaurando backups incrementales " + directory);
+        long start = System.currentTimeMillis();
+        RestoreCounters counters = new RestoreCounters();
+        long deleted = incrementalBackup.read(Path.of(directory), new IncrementalBackup.IncrementRestorer() {
+            @Override
+            public int delete(List<String> cods) throws SQLException {
+                return deleteAll(cods);
+            }
+
+            @Override
+            public void restore(JsonReader reader) throws SQLException, IOException {
+                restoreFrom(reader, counters, true);
+            }
+        });
+        RestoreReport report = counters.toReport(start);
+        logger.info(report + ", " + deleted + " borrados");
+        return report;
+    }
+
+    /**
+     * Realiza un backup por bloques en el directorio path/name
+     * La tabla se divide en rangos de id de backup.chunk.rows Funkos que backup.workers hilos escriben en paralelo
+     * con ChunkedBackup, cada uno en su propio fichero JSON comprimido con gzip y con la suma SHA-256 de cada
+     * bloque en el manifiesto. El backup anterior solo se sustituye si todos los bloques se han escrito bien.
+     * Los rangos se leen por separado, por lo que las escrituras concurrentes pueden verse en unos bloques y no
+     * en otros
+     *
+     * @param path Ruta del directorio donde se guardará el backup
+     * @param name Nombre del directorio del backup
+     * @return Manifiesto del backup
+     */
+    @Override
+    public BackupManifest backupChunked(String path, String name) throws SQLException, IOException {
+        Path parent = Path.of(path);
+        if (!Files.isDirectory(parent)) {
+            throw new IOException("El directorio del backup no existe: " + path);
+        }
+        logger.debug("Realizando backup por bloques en " + parent.resolve(name));
+        BackupManifest manifest = chunkedBackup.write(parent, name);
+        logger.debug("Backup por bloques realizado con éxito: " + manifest.chunks().size() + " bloques, "
+                + manifest.rows() + " Funkos");
+        return manifest;
+    }
+
+    /**
+     * Restaura en el repositorio un backup por bloques
+     * ChunkedBackup comprueba primero todos los bloques, de forma que un backup dañado no llega a restaurarse en
+     * parte, y después los bloques se restauran en paralelo con backup.workers hilos
+     *
+     * @param directory Ruta del directorio del backup
+     * @return Informe de la restauración
+     */
+    @Override
+    public RestoreReport restoreChunked(String directory) throws SQLException, IOException {
+        logger.debug("Restaurando backup por bloques " + directory);
+        long start = System.currentTimeMillis();
+        RestoreCounters counters = new RestoreCounters();
+        chunkedBackup.read(Path.of(directory), reader -> restoreFrom(reader, counters));
+        RestoreReport report = counters.toReport(start);
+        logger.info(report.toString());
+        return report;
+    }
+
+    /**
+     * Lee un array JSON de Funkos y restaura sus Funkos
+     *
+     * @param reader   Lector situado al principio del array
+     * @param counters Contadores de la restauración
+     */
+    private void restoreFrom(JsonReader reader, RestoreCounters counters) throws SQLException, IOException {
+        restoreFrom(reader, counters, false);
+    }
+
+    /**
+     * Lee un array JSON de Funkos y restaura sus Funkos
+     *
+     * @param reader   Lector situado al principio del array
+     * @param counters Contadores de la restauración
+     * @param upsert   ¿Se sustituyen los Funkos que ya existen?
+     */
+    private void restoreFrom(JsonReader reader, RestoreCounters counters, boolean upsert)
+            throws SQLException, IOException {
+        reader.beginArray();
+        restoreFrom(() -> reader.hasNext() ? backupGson.fromJson(reader, Funko.class) : null, counters, upsert);
+        reader.endArray();
+    }
+
+    /**
+     * Lee los Funkos de un backup, los valida y guarda los válidos por bloques de restore.chunk.size
+     *
+     * @param source   Origen de los Funkos del backup
+     * @param counters Contadores de la restauración
+     * @param upsert   ¿Se sustituyen los Funkos que ya existen?
+     */
+    private void restoreFrom(FunkoSource source, RestoreCounters counters, boolean upsert)
+            throws SQLException, IOException {
+        List<Funko> chunk = new ArrayList<>(restoreChunkSize);
+        Funko funko;
+        while ((funko = source.next()) != null) {
+            counters.read.increment();
+            try {
+                FunkoValidator.validate(funko);
+                chunk.add(funko);
+            } catch (FunkoNotValidException e) {
+                counters.invalid.increment();
+                String msg = "Funko " + (funko.getCod() == null ? "sin código" : funko.getCod())
+                        + " del backup no válido: " + e.getMessage();
+                logger.warn(msg);
+            }
+            if (chunk.size() == restoreChunkSize) {
+                restoreChunk(chunk, counters, upsert);
+            }
+        }
+        restoreChunk(chunk, counters, upsert);
+    }
+
+    /**
+     * Guarda un bloque de Funkos restaurados y lo vacía
+     *
+     * @param chunk    Funkos del bloque
+     * @param counters Contadores de la restauración
+     * @param upsert   ¿Se sustituyen los Funkos que ya existen?
+     */
+    private void restoreChunk(List<Funko> chunk, RestoreCounters counters, boolean upsert) throws SQLException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        BatchResult<Funko> result;
+        if (upsert) {
+            result = funkoRepository.upsertAll(chunk);
+            result.getSaved().forEach(funko -> invalidate(funko.getCod().toString()));
         } else {
-            logger.error("El directorio del backup es un directorio no válido. No se creará el backup.");
+            result = saveAll(chunk);
         }
+        counters.restored.add(result.getSaved().size());
+        counters.failed.add(result.getFailed().size());
+        if (!result.getFailed().isEmpty()) {
+            String msg = result.getFailed().size() + " Funkos del backup no se han podido guardar, el primero por: "
+                    + result.getFailed().get(0).reason();
+            logger.warn(msg);
+        }
+        chunk.clear();
     }
 
     /**
      * Devuelve un elemento del repositorio
+     * Si no está en la caché se busca en la base de datos; las búsquedas simultáneas del mismo id comparten
+     * una única consulta. Los ids que no existen se recuerdan un tiempo para no repetir la consulta
      *
      * @param id Id del elemento a buscar
      * @return Optional del elemento encontrado
@@ -108,19 +566,107 @@ public class FunkoServiceImpl implements FunkoService {
     @Override
     public Optional<Funko> findById(String id) throws SQLException {
         logger.debug("Obteniendo Funko por id");
-        Funko funko = cache.get(id);
-        if (funko != null) {
-            logger.debug("Funko encontrado en caché");
-            return Optional.of(funko);
-        }
-        logger.debug("Funko no encontrado en caché, buscando en base de datos");
-        Optional<Funko> result = funkoRepository.findById(id);
-        result.ifPresent(value -> cache.put(id, value));
+        if (missingIds != null && missingIds.get(id) != null) {
+            logger.debug("Funko no existente según la caché negativa");
+            return Optional.empty();
+        }
+        try {
+            return Optional.ofNullable(cache.get(id, this::loadOrMarkMissing));
+        } catch (SQLException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SQLException("Error al cargar el Funko con id " + id, e);
+        }
+    }
+
+    /**
+     * Devuelve varios elementos por su id
+     * Los que están en la caché se sirven desde ella y el resto se busca en el repositorio con una consulta
+     * por bloque de ids; los encontrados se guardan en la caché y los que no existen en la caché negativa
+     *
+     * @param ids Ids de los elementos a buscar
+     * @return Elementos encontrados por id, en el orden de los ids pedidos
+     */
+    @Override
+    public Map<String, Funko> findAllById(Collection<String> ids) throws SQLException {
+        logger.debug("Obteniendo " + ids.size() + " Funkos por id");
+        Set<String> requested = new LinkedHashSet<>(ids);
+        Map<String, Funko> found = new HashMap<>(requested.size() * 2);
+        List<String> pending = new ArrayList<>();
+        for (String id : requested) {
+            Funko funko = cache.get(id);
+            if (funko != null) {
+                found.put(id, funko);
+            } else if (missingIds == null || missingIds.get(id) == null) {
+                pending.add(id);
+            }
+        }
+        if (!pending.isEmpty()) {
+            logger.debug(pending.size() + " Funkos no encontrados en caché, buscando en base de datos");
+            long[] stamps = new long[pending.size()];
+            long[] missingStamps = new long[pending.size()];
+            for (int i = 0; i < pending.size(); i++) {
+                stamps[i] = cache.stamp(pending.get(i));
+                missingStamps[i] = missingIds == null ? 0 : missingIds.stamp(pending.get(i));
+            }
+            Map<String, Funko> loaded = funkoRepository.findAllById(pending);
+            for (int i = 0; i < pending.size(); i++) {
+                String id = pending.get(i);
+                Funko funko = loaded.get(id);
+                if (funko != null) {
+                    found.put(id, funko);
+                    cache.putIfUnchanged(id, funko, stamps[i]);
+                } else if (missingIds != null) {
+                    missingIds.putIfUnchanged(id, Boolean.TRUE, missingStamps[i]);
+                }
+            }
+        }
+        Map<String, Funko> result = new LinkedHashMap<>(found.size() * 2);
+        for (String id : requested) {
+            Funko funko = found.get(id);
+            if (funko != null) {
+                result.put(id, funko);
+            }
+        }
         return result;
     }
 
+    /**
+     * Carga un Funko del repositorio y, si no existe, lo anota en la caché negativa
+     * La anotación se descarta si el id se ha guardado mientras se consultaba la base de datos
+     *
+     * @param id Id del elemento a buscar
+     * @return Funko encontrado o null si no existe
+     * @throws Exception Si hay un error en la base de datos
+     */
+    private Funko loadOrMarkMissing(String id) throws Exception {
+        if (missingIds == null) {
+            return loader.load(id);
+        }
+        long stamp = missingIds.stamp(id);
+        Funko funko = loader.load(id);
+        if (funko == null) {
+            missingIds.putIfUnchanged(id, Boolean.TRUE, stamp);
+        }
+        return funko;
+    }
+
+    /**
+     * Invalida las entradas de un id en la caché y en la caché negativa
+     *
+     * @param id Id del elemento modificado
+     */
+    private void invalidate(String id) {
+        cache.remove(id);
+        if (missingIds != null) {
+            missingIds.remove(id);
+        }
+    }
+
     /**
      * Guarda un elemento en el repositorio
+     * La entrada de la caché se invalida después de escribir en la base de datos, de modo que la siguiente
+     * lectura obtiene el valor tal y como se ha guardado
      *
      * @param funko Elemento a guardar
      * @return Optional del elemento guardado
@@ -128,13 +674,50 @@ public class FunkoServiceImpl implements FunkoService {
     @Override
     public Optional<Funko> save(Funko funko) throws SQLException, FunkoNotSavedException {
         logger.debug("Guardando Funko");
-        cache.put(funko.getCod().toString(), funko);
-        return Optional.of(funkoRepository.save(funko).orElseThrow(() ->
-                new FunkoNotSavedException("No se ha podido guardar el Funko")));
+        try {
+            return Optional.of(funkoRepository.save(funko).orElseThrow(() ->
+                    new FunkoNotSavedException("No se ha podido guardar el Funko")));
+        } finally {
+            invalidate(funko.getCod().toString());
+        }
+    }
+
+    /**
+     * Guarda varios elementos en el repositorio mediante lotes
+     * Los elementos guardados no se añaden a la caché para no desalojar las entradas más usadas,
+     * pero se invalidan sus entradas por si alguna lectura estaba en curso
+     *
+     * @param funkos Elementos a guardar
+     * @return Resultado con los elementos guardados y los fallidos
+     */
+    @Override
+    public BatchResult<Funko> saveAll(Collection<Funko> funkos) throws SQLException {
+        logger.debug("Guardando " + funkos.size() + " Funkos por lotes");
+        BatchResult<Funko> result = funkoRepository.saveAll(funkos);
+        result.getSaved().forEach(funko -> invalidate(funko.getCod().toString()));
+        return result;
+    }
+
+    /**
+     * Borra varios elementos del repositorio mediante lotes
+     * Se invalidan las entradas de todos los ids después de escribir en la base de datos, también si falla
+     *
+     * @param ids Ids de los elementos a borrar
+     * @return Número de elementos borrados
+     */
+    @Override
+    public int deleteAll(Collection<String> ids) throws SQLException {
+        logger.debug("Eliminando " + ids.size() + " Funkos por lotes");
+        try {
+            return funkoRepository.deleteAll(ids);
+        } finally {
+            ids.forEach(this::invalidate);
+        }
     }
 
     /**
      * Actualiza un elemento del repositorio
+     * Se invalida la entrada del id actualizado después de escribir en la base de datos
      *
      * @param funkoId  Id del elemento a actualizar
      * @param newFunko Elemento con los nuevos datos
@@ -143,13 +726,17 @@ public class FunkoServiceImpl implements FunkoService {
     @Override
     public Optional<Funko> update(String funkoId, Funko newFunko) throws SQLException, FunkoNotValidException {
         logger.debug("Actualizando Funko");
-        cache.put(newFunko.getCod().toString(), newFunko);
-        return Optional.of(funkoRepository.update(funkoId, newFunko).orElseThrow(() ->
-                new FunkoNotValidException("No se ha actualizado el Funko con id " + funkoId)));
+        try {
+            return Optional.of(funkoRepository.update(funkoId, newFunko).orElseThrow(() ->
+                    new FunkoNotValidException("No se ha actualizado el Funko con id " + funkoId)));
+        } finally {
+            invalidate(funkoId);
+        }
     }
 
     /**
      * Borra un elemento del repositorio
+     * Se invalida la entrada del id borrado después de escribir en la base de datos
      *
      * @param id Id del elemento a borrar
      * @return ¿Borrado?
@@ -158,10 +745,49 @@ public class FunkoServiceImpl implements FunkoService {
     public boolean delete(String id) throws SQLException, FunkoNotRemovedException {
         boolean removed;
         logger.debug("Eliminando Funko");
-        removed = funkoRepository.delete(id);
+        try {
+            removed = funkoRepository.delete(id);
+        } finally {
+            invalidate(id);
+        }
         if (!removed) {
             throw new FunkoNotRemovedException("No se ha encontrado el Funko con id " + id);
         }
         return removed;
     }
+
+    /**
+     * Origen de los Funkos de una restauración
+     */
+    @FunctionalInterface
+    private interface FunkoSource {
+        /**
+         * Devuelve el siguiente Funko
+         *
+         * @return Funko o null si no quedan más
+         * @throws IOException Si hay un error al leer el backup
+         */
+        Funko next() throws IOException;
+    }
+
+    /**
+     * Contadores de una restauración, compartidos por los hilos que restauran los bloques
+     */
+    private static class RestoreCounters {
+        private final LongAdder read = new LongAdder();
+        private final LongAdder restored = new LongAdder();
+        private final LongAdder invalid = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+
+        /**
+         * Crea el informe de la restauración
+         *
+         * @param start Instante de inicio en milisegundos
+         * @return Informe de la restauración
+         */
+        private RestoreReport toReport(long start) {
+            return new RestoreReport(read.sum(), restored.sum(), invalid.sum(), failed.sum(),
+                    System.currentTimeMillis() - start);
+        }
+    }
 }
\ No newline at end of file
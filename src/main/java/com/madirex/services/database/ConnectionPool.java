@@ -0,0 +1,305 @@
+package com.madirex.services.database;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Pool acotado de conexiones JDBC
+ * Mantiene un mínimo de conexiones abiertas, limita el máximo de conexiones prestadas a la vez,
+ * valida cada conexión antes de prestarla y cierra las conexiones ociosas que superan el tiempo máximo
+ */
+public class ConnectionPool {
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private final Logger logger = LoggerFactory.getLogger(ConnectionPool.class);
+    private final String connectionUrl;
+    private final String user;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long acquireTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final Semaphore permits;
+    private final Deque<IdleConnection> idle = new ArrayDeque<>();
+    private final Set<Connection> borrowed = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final ScheduledExecutorService evictor;
+    private volatile Consumer<Connection> closeListener = connection -> {
+    };
+    private int openConnections = 0;
+    private boolean closed = false;
+
+    /**
+     * Constructor de la clase
+     *
+     * @param connectionUrl        URL de conexión JDBC
+     * @param user                 usuario de la base de datos
+     * @param password             contraseña de la base de datos
+     * @param minSize              número mínimo de conexiones abiertas
+     * @param maxSize              número máximo de conexiones prestadas a la vez
+     * @param acquireTimeoutMillis tiempo máximo de espera para obtener una conexión
+     * @param idleTimeoutMillis    tiempo máximo que una conexión puede permanecer ociosa por encima del mínimo
+     * @throws SQLException No se han podido abrir las conexiones iniciales
+     */
+    public ConnectionPool(String connectionUrl, String user, String password, int minSize, int maxSize,
+                          long acquireTimeoutMillis, long idleTimeoutMillis) throws SQLException {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Tamaño de pool no válido: min=" + minSize + ", max=" + maxSize);
+        }
+        this.connectionUrl = connectionUrl;
+        this.user = user;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.permits = new Semaphore(maxSize, true);
+        for (int i = 0; i < minSize; i++) {
+            idle.push(new IdleConnection(createConnection(), System.currentTimeMillis()));
+        }
+        evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "connection-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(idleTimeoutMillis / 2, 1000);
+        evictor.scheduleAtFixedRate(this::evictIdleConnections, period, period, TimeUnit.MILLISECONDS);
+        logger.debug("Pool de conexiones creado (min=" + minSize + ", max=" + maxSize + ")");
+    }
+
+    /**
+     * Obtiene una conexión del pool, esperando como máximo el tiempo de adquisición configurado
+     * La conexión se valida antes de entregarla; si no es válida se descarta y se usa otra
+     *
+     * @return conexión lista para usar
+     * @throws SQLException No hay conexiones disponibles a tiempo o no se ha podido abrir una nueva
+     */
+    public Connection borrow() throws SQLException {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTimeoutException("No se ha podido obtener una conexión del pool en "
+                        + acquireTimeoutMillis + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrumpido mientras se esperaba una conexión del pool", e);
+        }
+        try {
+            Connection connection = takeValidConnection();
+            synchronized (this) {
+                borrowed.add(connection);
+            }
+            return connection;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Devuelve una conexión al pool
+     * La conexión se restablece (rollback y auto-commit) sin bloquear el pool, de modo que una conexión lenta
+     * no retiene a los demás hilos. Si la conexión está cerrada o el pool ya se ha cerrado, se descarta.
+     * Las conexiones que no están prestadas, por ejemplo porque ya se han devuelto, se ignoran
+     *
+     * @param connection conexión a devolver
+     */
+    public void release(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        synchronized (this) {
+            if (!borrowed.remove(connection)) {
+                logger.warn("Se ha intentado devolver una conexión que no está prestada por el pool");
+                return;
+            }
+        }
+        try {
+            boolean reusable = !connection.isClosed();
+            if (reusable && !connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            synchronized (this) {
+                reusable &= !closed;
+                if (reusable) {
+                    idle.push(new IdleConnection(connection, System.currentTimeMillis()));
+                }
+            }
+            if (!reusable) {
+                discardConnection(connection);
+            }
+        } catch (SQLException e) {
+            logger.warn("Conexión descartada al devolverla al pool: " + e);
+            discardConnection(connection);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Cierra todas las conexiones ociosas y detiene el pool
+     * Las conexiones prestadas se cierran al devolverse
+     */
+    public void close() {
+        evictor.shutdownNow();
+        synchronized (this) {
+            closed = true;
+            while (!idle.isEmpty()) {
+                closeQuietly(idle.pop().connection());
+                openConnections--;
+            }
+        }
+        logger.debug("Pool de conexiones cerrado");
+    }
+
+    /**
+     * Registra una acción que se ejecuta antes de cerrar físicamente una conexión del pool
+     *
+     * @param closeListener acción a ejecutar con la conexión que se va a cerrar
+     */
+    public void setCloseListener(Consumer<Connection> closeListener) {
+        this.closeListener = closeListener;
+    }
+
+    /**
+     * Devuelve el número de conexiones abiertas (ociosas y prestadas)
+     *
+     * @return número de conexiones abiertas
+     */
+    public synchronized int getOpenConnections() {
+        return openConnections;
+    }
+
+    /**
+     * Devuelve el número de conexiones ociosas
+     *
+     * @return número de conexiones ociosas
+     */
+    public synchronized int getIdleConnections() {
+        return idle.size();
+    }
+
+    /**
+     * Toma una conexión ociosa válida o abre una nueva
+     * Se llama con un permiso ya adquirido, por lo que nunca se superan maxSize conexiones
+     *
+     * @return conexión válida
+     * @throws SQLException No se ha podido abrir una conexión
+     */
+    private Connection takeValidConnection() throws SQLException {
+        while (true) {
+            IdleConnection candidate;
+            synchronized (this) {
+                if (closed) {
+                    throw new SQLException("El pool de conexiones está cerrado");
+                }
+                candidate = idle.poll();
+            }
+            if (candidate == null) {
+                return createConnection();
+            }
+            if (isValid(candidate.connection())) {
+                return candidate.connection();
+            }
+            logger.debug("Conexión no válida descartada del pool");
+            discardConnection(candidate.connection());
+        }
+    }
+
+    /**
+     * Cierra las conexiones ociosas que superan el tiempo máximo, respetando el mínimo del pool
+     */
+    private void evictIdleConnections() {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            Iterator<IdleConnection> it = idle.descendingIterator();
+            while (it.hasNext() && openConnections > minSize) {
+                IdleConnection candidate = it.next();
+                if (now - candidate.lastUsed() < idleTimeoutMillis) {
+                    break;
+                }
+                it.remove();
+                closeQuietly(candidate.connection());
+                openConnections--;
+            }
+        }
+    }
+
+    /**
+     * Abre una nueva conexión física
+     *
+     * @return nueva conexión
+     * @throws SQLException No se ha podido abrir la conexión
+     */
+    private Connection createConnection() throws SQLException {
+        Connection connection = DriverManager.getConnection(connectionUrl, user, password);
+        synchronized (this) {
+            openConnections++;
+        }
+        return connection;
+    }
+
+    /**
+     * Comprueba si una conexión sigue siendo válida
+     *
+     * @param connection conexión a comprobar
+     * @return ¿Válida?
+     */
+    private boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Cierra una conexión y la elimina del recuento de conexiones abiertas
+     *
+     * @param connection conexión a descartar
+     */
+    private void discardConnection(Connection connection) {
+        closeQuietly(connection);
+        synchronized (this) {
+            openConnections--;
+        }
+    }
+
+    /**
+     * Cierra una conexión ignorando los errores
+     *
+     * @param connection conexión a cerrar
+     */
+    private void closeQuietly(Connection connection) {
+        try {
+            closeListener.accept(connection);
+            connection.close();
+        } catch (SQLException e) {
+            logger.warn("Error al cerrar una conexión del pool: " + e);
+        }
+    }
+
+    /**
+     * Conexión ociosa junto al instante en el que se devolvió al pool
+     *
+     * @param connection conexión ociosa
+     * @param lastUsed   instante de la devolución en milisegundos
+     */
+    private record IdleConnection(Connection connection, long lastUsed) {
+    }
+}
@@ -2,32 +2,55 @@ package com.madirex.services.database;
 
 import com.madirex.utils.ApplicationProperties;
 import io.github.cdimascio.dotenv.Dotenv;
+import lombok.Getter;
 import lombok.NonNull;
 import org.apache.ibatis.jdbc.ScriptRunner;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetProvider;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.sql.*;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Controlador de Bases de Datos
+ * Cada operación toma su propia conexión del pool y la devuelve al terminar. Dentro de una transacción,
+ * la conexión queda asociada al hilo que la inició hasta el commit. Las lecturas no necesitan transacción:
+ * se ejecutan en modo auto-commit. Las sentencias preparadas se reutilizan mediante una caché LRU por conexión
  */
 public class DatabaseManager {
     private static DatabaseManager controller;
     private final Logger logger = LoggerFactory.getLogger(DatabaseManager.class);
+    private final ThreadLocal<Transaction> currentTransaction = new ThreadLocal<>();
+    private final Map<Connection, StatementCache> statementCaches = new ConcurrentHashMap<>();
+    @Getter
+    private final StatementCache.Stats statementCacheStats = new StatementCache.Stats();
     private String serverUrl;
     private String databaseName;
     private String user;
     private String password;
     private String driver;
     private String initScript;
-    private Connection connection;
-    private PreparedStatement preparedStatement;
+    private int poolMinSize;
+    private int poolMaxSize;
+    private long poolAcquireTimeout;
+    private long poolIdleTimeout;
+    private int statementCacheSize;
+    private volatile ConnectionPool pool;
     private String connectionUrl;
     private boolean dataInitialized = false;
 
@@ -43,7 +66,7 @@ public class DatabaseManager {
      *
      * @return instancia del controladorBD
      */
-    public static DatabaseManager getInstance() {
+    public static synchronized DatabaseManager getInstance() {
         if (controller == null) {
             controller = new DatabaseManager();
         }
@@ -59,6 +82,11 @@ public class DatabaseManager {
         databaseName = properties.readProperty("db.name", "AppDatabase");
         driver = properties.readProperty("db.driver", "org.h2.Driver");
         initScript = properties.readProperty("db.init", "false");
+        poolMinSize = Integer.parseInt(properties.readProperty("db.pool.min", "2"));
+        poolMaxSize = Integer.parseInt(properties.readProperty("db.pool.max", "10"));
+        poolAcquireTimeout = Long.parseLong(properties.readProperty("db.pool.timeout", "5000"));
+        poolIdleTimeout = Long.parseLong(properties.readProperty("db.pool.idle", "60000"));
+        statementCacheSize = Integer.parseInt(properties.readProperty("db.statement.cache", "64"));
         Dotenv dotenv = Dotenv.load();
         user = dotenv.get("DATABASE_USER");
         password = dotenv.get("DATABASE_PASSWORD");
@@ -67,52 +95,85 @@ public class DatabaseManager {
     }
 
     /**
-     * Abre la conexión con el servidor  de base de datos
+     * Abre el pool de conexiones con el servidor de base de datos
+     * El pool solo se publica cuando la base de datos está inicializada, de forma que los demás hilos no
+     * pueden usarlo antes
      *
      * @throws SQLException Servidor no accesible por problemas de conexión o datos de acceso incorrectos
      */
-    public void open() throws SQLException {
-        if (connection != null && !connection.isClosed()) {
+    public synchronized void open() throws SQLException {
+        if (pool != null) {
             return;
         }
-        connection = DriverManager.getConnection(connectionUrl, user, password);
+        ConnectionPool connectionPool = new ConnectionPool(connectionUrl, user, password, poolMinSize, poolMaxSize,
+                poolAcquireTimeout, poolIdleTimeout);
+        connectionPool.setCloseListener(connection -> {
+            StatementCache statementCache = statementCaches.remove(connection);
+            if (statementCache != null) {
+                statementCache.close();
+            }
+        });
         try {
-            initData();
+            initData(connectionPool);
         } catch (IOException e) {
+            connectionPool.close();
             throw new RuntimeException(e);
+        } catch (SQLException | RuntimeException e) {
+            connectionPool.close();
+            throw e;
         }
+        pool = connectionPool;
     }
 
     /**
      * Inicializa la base de datos con los datos del fichero data.sql
-     * Solo si el properties tiene la propiedad db.init en TRUE
-     */
-    public void initData() throws SQLException, IOException {
-        if (!dataInitialized && initScript.equalsIgnoreCase("true")) {
-            String sql = new String(Objects.requireNonNull(getClass().getClassLoader()
-                    .getResourceAsStream("data.sql")).readAllBytes(), StandardCharsets.UTF_8);
-            try (PreparedStatement psTry = connection.prepareStatement(sql)) {
-                psTry.execute();
+     * Solo si el properties tiene la propiedad db.init en TRUE. Después aplica las migraciones
+     * pendientes del esquema, para que las bases de datos existentes también se actualicen
+     */
+    public synchronized void initData() throws SQLException, IOException {
+        initData(getPool());
+    }
+
+    /**
+     * Inicializa la base de datos con una conexión del pool indicado, si no se ha inicializado ya
+     *
+     * @param connectionPool pool de conexiones
+     */
+    private synchronized void initData(ConnectionPool connectionPool) throws SQLException, IOException {
+        if (dataInitialized) {
+            return;
+        }
+        Connection connection = connectionPool.borrow();
+        try {
+            if (initScript.equalsIgnoreCase("true")) {
+                String sql = new String(Objects.requireNonNull(getClass().getClassLoader()
+                        .getResourceAsStream("data.sql")).readAllBytes(), StandardCharsets.UTF_8);
+                try (PreparedStatement psTry = connection.prepareStatement(sql)) {
+                    psTry.execute();
+                }
             }
-            dataInitialized = true;
+            new SchemaMigrator().migrate(connection);
+        } finally {
+            connectionPool.release(connection);
         }
+        dataInitialized = true;
     }
 
     /**
-     * Cierra la conexión con el servidor de base de datos
+     * Cierra el pool de conexiones con el servidor de base de datos
      */
-    public void close() {
-        try {
-            preparedStatement.close();
-            connection.close();
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
+    public synchronized void close() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
         }
     }
 
     /**
      * Realiza una consulta a la base de datos de manera "preparada" obteniendo los
      * parámetros opcionales si son necesarios
+     * Fuera de una transacción, el resultado se copia a un CachedRowSet desconectado para poder
+     * devolver la conexión al pool inmediatamente
      *
      * @param querySQL consulta SQL de tipo select
      * @param params   parámetros de la consulta parametrizada
@@ -120,14 +181,25 @@ public class DatabaseManager {
      * @throws SQLException No se ha podido realizar la consulta o la tabla no existe
      */
     private ResultSet executeQuery(@NonNull String querySQL, Object... params) throws SQLException {
-        this.open();
         var strParams = Arrays.toString(params);
         logger.debug("Ejecutando consulta: " + querySQL + " con parámetros: " + strParams);
-        preparedStatement = connection.prepareStatement(querySQL);
-        for (int i = 0; i < params.length; i++) {
-            preparedStatement.setObject(i + 1, params[i]);
+        Transaction transaction = currentTransaction.get();
+        if (transaction != null) {
+            PreparedStatement preparedStatement = prepare(transaction.connection, querySQL, Statement.NO_GENERATED_KEYS);
+            setParams(preparedStatement, params);
+            return transaction.track(preparedStatement.executeQuery());
+        }
+        ConnectionPool connectionPool = getPool();
+        Connection connection = connectionPool.borrow();
+        try {
+            PreparedStatement preparedStatement = prepare(connection, querySQL, Statement.NO_GENERATED_KEYS);
+            setParams(preparedStatement, params);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                return disconnect(resultSet);
+            }
+        } finally {
+            connectionPool.release(connection);
         }
-        return preparedStatement.executeQuery();
     }
 
     /**
@@ -143,6 +215,108 @@ public class DatabaseManager {
         return Optional.of(executeQuery(querySQL, params));
     }
 
+    /**
+     * Realiza una consulta select y convierte sus filas directamente desde el cursor
+     * Fuera de una transacción usa una conexión del pool en modo auto-commit, sin iniciar ni confirmar
+     * ninguna transacción y sin copiar el resultado
+     *
+     * @param querySQL consulta SQL de tipo select
+     * @param mapper   conversión de cada fila
+     * @param params   parámetros de la consulta parametrizada
+     * @param <T>      tipo de los elementos de la lista
+     * @return Lista con las filas convertidas
+     * @throws SQLException No se ha podido realizar la consulta o la tabla no existe
+     */
+    public <T> List<T> query(@NonNull String querySQL, @NonNull RowMapper<T> mapper, Object... params)
+            throws SQLException {
+        var strParams = Arrays.toString(params);
+        logger.debug("Ejecutando consulta: " + querySQL + " con parámetros: " + strParams);
+        Transaction transaction = currentTransaction.get();
+        if (transaction != null) {
+            return query(transaction.connection, querySQL, mapper, params);
+        }
+        ConnectionPool connectionPool = getPool();
+        Connection connection = connectionPool.borrow();
+        try {
+            return query(connection, querySQL, mapper, params);
+        } finally {
+            connectionPool.release(connection);
+        }
+    }
+
+    /**
+     * Realiza una consulta select y devuelve su primera fila convertida
+     *
+     * @param querySQL consulta SQL de tipo select
+     * @param mapper   conversión de la fila
+     * @param params   parámetros de la consulta parametrizada
+     * @param <T>      tipo del elemento
+     * @return Optional de la primera fila convertida, vacío si no hay filas o la conversión devuelve null
+     * @throws SQLException No se ha podido realizar la consulta o la tabla no existe
+     */
+    public <T> Optional<T> queryFirst(@NonNull String querySQL, @NonNull RowMapper<T> mapper, Object... params)
+            throws SQLException {
+        List<T> list = query(querySQL, mapper, params);
+        return list.isEmpty() ? Optional.empty() : Optional.ofNullable(list.get(0));
+    }
+
+    /**
+     * Realiza una consulta select y devuelve sus filas como un Stream que se lee del cursor bajo demanda
+     * Fuera de una transacción, la consulta usa una conexión del pool dedicada al Stream (en H2 con ejecución
+     * perezosa, para que el resultado no se cargue entero en memoria). El Stream debe cerrarse, por ejemplo
+     * con try-with-resources, para cerrar el ResultSet y la sentencia y devolver la conexión al pool
+     *
+     * @param querySQL  consulta SQL de tipo select
+     * @param fetchSize número de filas que se piden al servidor en cada lectura
+     * @param mapper    conversión de cada fila
+     * @param params    parámetros de la consulta parametrizada
+     * @param <T>       tipo de los elementos del Stream
+     * @return Stream con las filas de la consulta
+     * @throws SQLException No se ha podido realizar la consulta o la tabla no existe
+     */
+    public <T> Stream<T> stream(@NonNull String querySQL, int fetchSize, @NonNull RowMapper<T> mapper,
+                                Object... params) throws SQLException {
+        var strParams = Arrays.toString(params);
+        logger.debug("Abriendo cursor: " + querySQL + " con parámetros: " + strParams);
+        Transaction transaction = currentTransaction.get();
+        ConnectionPool connectionPool = transaction == null ? getPool() : null;
+        Connection connection = transaction == null ? connectionPool.borrow() : transaction.connection;
+        boolean lazy = transaction == null && connectionUrl.startsWith("jdbc:h2");
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet;
+        try {
+            if (lazy) {
+                setLazyQueryExecution(connection, true);
+            }
+            preparedStatement = connection.prepareStatement(querySQL, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+            preparedStatement.setFetchSize(fetchSize);
+            setParams(preparedStatement, params);
+            resultSet = preparedStatement.executeQuery();
+        } catch (SQLException e) {
+            closeCursor(null, preparedStatement, connection, connectionPool, lazy);
+            throw e;
+        }
+        PreparedStatement statement = preparedStatement;
+        Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    if (!resultSet.next()) {
+                        return false;
+                    }
+                    action.accept(mapper.map(resultSet));
+                    return true;
+                } catch (SQLException e) {
+                    throw new IllegalStateException("Error al leer el cursor: " + e.getMessage(), e);
+                }
+            }
+        };
+        return StreamSupport.stream(spliterator, false)
+                .onClose(() -> closeCursor(resultSet, statement, connection, connectionPool, lazy));
+    }
+
     /**
      * Realiza una consulta select a la base de datos de manera "preparada" obteniendo los
      * parámetros opcionales si son necesarios
@@ -170,15 +344,27 @@ public class DatabaseManager {
      * @throws SQLException tabla no existe o no se ha podido realizar la operación
      */
     public Optional<ResultSet> insertAndGetKey(@NonNull String insertSQL, Object... params) throws SQLException {
-        this.open();
         var strParams = Arrays.toString(params);
         logger.debug("Ejecutando consulta " + insertSQL + " con parámetros: " + strParams);
-        preparedStatement = connection.prepareStatement(insertSQL, preparedStatement.RETURN_GENERATED_KEYS);
-        for (int i = 0; i < params.length; i++) {
-            preparedStatement.setObject(i + 1, params[i]);
+        Transaction transaction = currentTransaction.get();
+        if (transaction != null) {
+            PreparedStatement preparedStatement = prepare(transaction.connection, insertSQL, Statement.RETURN_GENERATED_KEYS);
+            setParams(preparedStatement, params);
+            preparedStatement.executeUpdate();
+            return Optional.of(transaction.track(preparedStatement.getGeneratedKeys()));
+        }
+        ConnectionPool connectionPool = getPool();
+        Connection connection = connectionPool.borrow();
+        try {
+            PreparedStatement preparedStatement = prepare(connection, insertSQL, Statement.RETURN_GENERATED_KEYS);
+            setParams(preparedStatement, params);
+            preparedStatement.executeUpdate();
+            try (ResultSet keys = preparedStatement.getGeneratedKeys()) {
+                return Optional.of(disconnect(keys));
+            }
+        } finally {
+            connectionPool.release(connection);
         }
-        preparedStatement.executeUpdate();
-        return Optional.of(preparedStatement.getGeneratedKeys());
     }
 
     /**
@@ -230,14 +416,46 @@ public class DatabaseManager {
      * @throws SQLException no se ha podido realizar la operación
      */
     private int updateQuery(@NonNull String genericSQL, Object... params) throws SQLException {
-        this.open();
         var strParams = Arrays.toString(params);
         logger.debug("Ejecutando consulta " + genericSQL + " con parámetros: " + strParams);
-        preparedStatement = connection.prepareStatement(genericSQL);
-        for (int i = 0; i < params.length; i++) {
-            preparedStatement.setObject(i + 1, params[i]);
+        Transaction transaction = currentTransaction.get();
+        if (transaction != null) {
+            PreparedStatement preparedStatement = prepare(transaction.connection, genericSQL, Statement.NO_GENERATED_KEYS);
+            setParams(preparedStatement, params);
+            return preparedStatement.executeUpdate();
+        }
+        ConnectionPool connectionPool = getPool();
+        Connection connection = connectionPool.borrow();
+        try {
+            PreparedStatement preparedStatement = prepare(connection, genericSQL, Statement.NO_GENERATED_KEYS);
+            setParams(preparedStatement, params);
+            return preparedStatement.executeUpdate();
+        } finally {
+            connectionPool.release(connection);
+        }
+    }
+
+    /**
+     * Ejecuta la misma sentencia de modificación para varios conjuntos de parámetros en un único lote JDBC
+     *
+     * @param batchSQL   consulta SQL de tipo insert, update o delete
+     * @param paramsList parámetros de cada fila del lote
+     * @return número de registros aplicados por cada fila del lote
+     * @throws SQLException no se ha podido realizar la operación
+     */
+    public int[] executeBatch(@NonNull String batchSQL, @NonNull List<Object[]> paramsList) throws SQLException {
+        logger.debug("Ejecutando lote " + batchSQL + " con " + paramsList.size() + " filas");
+        Transaction transaction = currentTransaction.get();
+        if (transaction != null) {
+            return executeBatch(transaction.connection, batchSQL, paramsList);
+        }
+        ConnectionPool connectionPool = getPool();
+        Connection connection = connectionPool.borrow();
+        try {
+            return executeBatch(connection, batchSQL, paramsList);
+        } finally {
+            connectionPool.release(connection);
         }
-        return preparedStatement.executeUpdate();
     }
 
     /**
@@ -252,16 +470,100 @@ public class DatabaseManager {
         return updateQuery(genericSQL);
     }
 
+    /**
+     * Ejecuta una operación dentro de una transacción
+     * Si la operación termina bien se confirma y si lanza cualquier excepción se deshace y la excepción se
+     * propaga; en ambos casos la conexión vuelve al pool. Si el hilo ya está en una transacción, la operación
+     * se une a ella y es quien la inició quien la confirma o la deshace
+     *
+     * @param callback operación a ejecutar
+     * @param <T>      tipo del resultado
+     * @return resultado de la operación
+     * @throws SQLException No se ha podido realizar la operación
+     */
+    public <T> T inTransaction(@NonNull TransactionCallback<T> callback) throws SQLException {
+        return inTransaction(Connection.TRANSACTION_NONE, callback);
+    }
+
+    /**
+     * Ejecuta una operación de solo lectura dentro de una transacción serializable
+     * Todas las consultas de la operación ven la misma foto de la base de datos, tomada en su primera consulta,
+     * sin bloquear las escrituras de otros hilos; en H2, LOCALTIMESTAMP devuelve además el mismo instante en
+     * toda la transacción. Si el hilo ya está en una transacción, la operación se une a ella con su aislamiento
+     *
+     * @param callback operación a ejecutar
+     * @param <T>      tipo del resultado
+     * @return resultado de la operación
+     * @throws SQLException No se ha podido realizar la operación
+     */
+    public <T> T inReadTransaction(@NonNull TransactionCallback<T> callback) throws SQLException {
+        return inTransaction(Connection.TRANSACTION_SERIALIZABLE, callback);
+    }
+
+    /**
+     * Ejecuta una operación dentro de una transacción con el aislamiento indicado
+     *
+     * @param isolation aislamiento de la transacción o Connection.TRANSACTION_NONE para el de la conexión
+     * @param callback  operación a ejecutar
+     * @param <T>       tipo del resultado
+     * @return resultado de la operación
+     * @throws SQLException No se ha podido realizar la operación
+     */
+    private <T> T inTransaction(int isolation, TransactionCallback<T> callback) throws SQLException {
+        if (currentTransaction.get() != null) {
+            return callback.execute();
+        }
+        beginTransaction(isolation);
+        T result;
+        try {
+            result = callback.execute();
+        } catch (SQLException | RuntimeException | Error e) {
+            try {
+                rollback();
+            } catch (SQLException rollbackException) {
+                e.addSuppressed(rollbackException);
+            }
+            throw e;
+        }
+        commit();
+        return result;
+    }
+
     /**
      * Inicia una transacción
+     * Toma una conexión del pool y la asocia al hilo actual hasta el commit o el rollback
      *
      * @throws SQLException No se ha podido realizar la operación
      */
     public void beginTransaction() throws SQLException {
-        if (connection == null) {
-            this.open();
+        beginTransaction(Connection.TRANSACTION_NONE);
+    }
+
+    /**
+     * Inicia una transacción con el aislamiento indicado
+     * El aislamiento anterior de la conexión se restaura al finalizar la transacción
+     *
+     * @param isolation aislamiento de la transacción o Connection.TRANSACTION_NONE para el de la conexión
+     * @throws SQLException No se ha podido realizar la operación
+     */
+    private void beginTransaction(int isolation) throws SQLException {
+        if (currentTransaction.get() != null) {
+            return;
+        }
+        ConnectionPool connectionPool = getPool();
+        Connection connection = connectionPool.borrow();
+        int previousIsolation = Connection.TRANSACTION_NONE;
+        try {
+            connection.setAutoCommit(false);
+            if (isolation != Connection.TRANSACTION_NONE) {
+                previousIsolation = connection.getTransactionIsolation();
+                connection.setTransactionIsolation(isolation);
+            }
+        } catch (SQLException e) {
+            connectionPool.release(connection);
+            throw e;
         }
-        connection.setAutoCommit(false);
+        currentTransaction.set(new Transaction(connectionPool, connection, previousIsolation));
     }
 
     /**
@@ -270,8 +572,13 @@ public class DatabaseManager {
      * @throws SQLException No se ha podido realizar la operación
      */
     public void commit() throws SQLException {
-        connection.commit();
-        connection.setAutoCommit(true);
+        Transaction transaction = requireTransaction();
+        try {
+            transaction.connection.commit();
+            transaction.connection.setAutoCommit(true);
+        } finally {
+            endTransaction(transaction);
+        }
     }
 
     /**
@@ -279,9 +586,14 @@ public class DatabaseManager {
      *
      * @throws SQLException No se ha podido realizar la operación
      */
-    private void rollback() throws SQLException {
-        connection.rollback();
-        connection.setAutoCommit(true);
+    public void rollback() throws SQLException {
+        Transaction transaction = requireTransaction();
+        try {
+            transaction.connection.rollback();
+            transaction.connection.setAutoCommit(true);
+        } finally {
+            endTransaction(transaction);
+        }
     }
 
 
@@ -295,9 +607,250 @@ public class DatabaseManager {
      */
     public void initData(@NonNull String sqlFile, boolean logWriter) throws FileNotFoundException, SQLException {
         logger.debug("Inicializando datos de fichero: " + sqlFile + " con logWriter: " + logWriter);
-        this.open();
-        var sr = new ScriptRunner(connection);
-        var reader = new BufferedReader(new FileReader(sqlFile));
-        sr.runScript(reader);
+        ConnectionPool connectionPool = getPool();
+        Connection connection = connectionPool.borrow();
+        try (var reader = new BufferedReader(new FileReader(sqlFile))) {
+            var sr = new ScriptRunner(connection);
+            sr.runScript(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            connectionPool.release(connection);
+        }
+    }
+
+    /**
+     * Devuelve el pool de conexiones, abriéndolo si es necesario
+     * Una vez abierto, el pool se lee del campo volatile sin bloqueo; solo la apertura se hace con el
+     * monitor de la instancia
+     *
+     * @return pool de conexiones
+     * @throws SQLException No se ha podido abrir el pool
+     */
+    private ConnectionPool getPool() throws SQLException {
+        ConnectionPool current = pool;
+        if (current == null) {
+            synchronized (this) {
+                open();
+                current = pool;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Devuelve la transacción asociada al hilo actual
+     *
+     * @return transacción actual
+     * @throws SQLException No hay ninguna transacción iniciada en este hilo
+     */
+    private Transaction requireTransaction() throws SQLException {
+        Transaction transaction = currentTransaction.get();
+        if (transaction == null) {
+            throw new SQLException("No hay ninguna transacción iniciada en este hilo");
+        }
+        return transaction;
+    }
+
+    /**
+     * Finaliza la transacción: cierra sus resultados abiertos y devuelve la conexión al pool
+     *
+     * @param transaction transacción a finalizar
+     */
+    private void endTransaction(Transaction transaction) {
+        currentTransaction.remove();
+        transaction.closeResultSets();
+        if (transaction.previousIsolation != Connection.TRANSACTION_NONE) {
+            try {
+                transaction.connection.setTransactionIsolation(transaction.previousIsolation);
+            } catch (SQLException e) {
+                logger.warn("Conexión descartada al no poder restaurar su aislamiento: " + e);
+                try {
+                    transaction.connection.close();
+                } catch (SQLException closeException) {
+                    logger.warn("Error al cerrar la conexión: " + closeException);
+                }
+            }
+        }
+        transaction.pool.release(transaction.connection);
+    }
+
+    /**
+     * Realiza una consulta select en una conexión y convierte sus filas
+     *
+     * @param connection conexión en la que se ejecuta la consulta
+     * @param querySQL   consulta SQL de tipo select
+     * @param mapper     conversión de cada fila
+     * @param params     parámetros de la consulta parametrizada
+     * @param <T>        tipo de los elementos de la lista
+     * @return Lista con las filas convertidas
+     * @throws SQLException No se ha podido realizar la consulta
+     */
+    private <T> List<T> query(Connection connection, String querySQL, RowMapper<T> mapper, Object... params)
+            throws SQLException {
+        PreparedStatement preparedStatement = prepare(connection, querySQL, Statement.NO_GENERATED_KEYS);
+        setParams(preparedStatement, params);
+        List<T> list = new ArrayList<>();
+        try (ResultSet resultSet = preparedStatement.executeQuery()) {
+            while (resultSet.next()) {
+                list.add(mapper.map(resultSet));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Obtiene de la caché de la conexión la sentencia preparada para el SQL dado
+     *
+     * @param connection        conexión en la que se ejecutará la sentencia
+     * @param sql               consulta SQL
+     * @param autoGeneratedKeys Statement.RETURN_GENERATED_KEYS o Statement.NO_GENERATED_KEYS
+     * @return sentencia preparada
+     * @throws SQLException No se ha podido preparar la sentencia
+     */
+    private PreparedStatement prepare(Connection connection, String sql, int autoGeneratedKeys) throws SQLException {
+        return statementCaches.computeIfAbsent(connection,
+                        c -> new StatementCache(c, statementCacheSize, statementCacheStats))
+                .prepare(sql, autoGeneratedKeys);
+    }
+
+    /**
+     * Añade cada conjunto de parámetros al lote de la sentencia y lo ejecuta
+     *
+     * @param connection conexión en la que se ejecuta el lote
+     * @param batchSQL   consulta SQL del lote
+     * @param paramsList parámetros de cada fila del lote
+     * @return número de registros aplicados por cada fila del lote
+     * @throws SQLException no se ha podido realizar la operación
+     */
+    private int[] executeBatch(Connection connection, String batchSQL, List<Object[]> paramsList) throws SQLException {
+        PreparedStatement preparedStatement = prepare(connection, batchSQL, Statement.NO_GENERATED_KEYS);
+        try {
+            for (Object[] params : paramsList) {
+                setParams(preparedStatement, params);
+                preparedStatement.addBatch();
+            }
+            return preparedStatement.executeBatch();
+        } finally {
+            preparedStatement.clearBatch();
+        }
+    }
+
+    /**
+     * Asigna los parámetros a una sentencia preparada
+     *
+     * @param preparedStatement sentencia preparada
+     * @param params            parámetros de la consulta parametrizada
+     * @throws SQLException No se ha podido asignar algún parámetro
+     */
+    private void setParams(PreparedStatement preparedStatement, Object... params) throws SQLException {
+        for (int i = 0; i < params.length; i++) {
+            preparedStatement.setObject(i + 1, params[i]);
+        }
+    }
+
+    /**
+     * Cierra los recursos de un cursor abierto con stream y devuelve su conexión al pool si era dedicada
+     *
+     * @param resultSet         resultado del cursor o null
+     * @param preparedStatement sentencia del cursor o null
+     * @param connection        conexión del cursor
+     * @param connectionPool    pool al que devolver la conexión o null si pertenece a una transacción
+     * @param lazy              si se activó la ejecución perezosa en la conexión
+     */
+    private void closeCursor(ResultSet resultSet, PreparedStatement preparedStatement, Connection connection,
+                             ConnectionPool connectionPool, boolean lazy) {
+        try {
+            if (resultSet != null) {
+                resultSet.close();
+            }
+            if (preparedStatement != null) {
+                preparedStatement.close();
+            }
+            if (lazy) {
+                setLazyQueryExecution(connection, false);
+            }
+        } catch (SQLException e) {
+            logger.warn("Error al cerrar un cursor: " + e);
+        } finally {
+            if (connectionPool != null) {
+                connectionPool.release(connection);
+            }
+        }
+    }
+
+    /**
+     * Activa o desactiva la ejecución perezosa de consultas de H2 en una conexión
+     *
+     * @param connection conexión a configurar
+     * @param enabled    ¿Activar?
+     * @throws SQLException No se ha podido cambiar la configuración
+     */
+    private void setLazyQueryExecution(Connection connection, boolean enabled) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET LAZY_QUERY_EXECUTION " + enabled);
+        }
+    }
+
+    /**
+     * Copia un ResultSet a un CachedRowSet desconectado de la conexión
+     *
+     * @param resultSet resultado a copiar
+     * @return copia desconectada del resultado
+     * @throws SQLException No se ha podido leer el resultado
+     */
+    private ResultSet disconnect(ResultSet resultSet) throws SQLException {
+        CachedRowSet rowSet = RowSetProvider.newFactory().createCachedRowSet();
+        rowSet.populate(resultSet);
+        return rowSet;
+    }
+
+    /**
+     * Transacción asociada a un hilo: la conexión prestada y los resultados abiertos en ella
+     */
+    private final class Transaction {
+        private final ConnectionPool pool;
+        private final Connection connection;
+        private final int previousIsolation;
+        private final List<ResultSet> resultSets = new ArrayList<>();
+
+        /**
+         * Constructor de la clase
+         *
+         * @param pool              pool del que se ha tomado la conexión
+         * @param connection        conexión de la transacción
+         * @param previousIsolation aislamiento a restaurar al finalizar o Connection.TRANSACTION_NONE
+         */
+        private Transaction(ConnectionPool pool, Connection connection, int previousIsolation) {
+            this.pool = pool;
+            this.connection = connection;
+            this.previousIsolation = previousIsolation;
+        }
+
+        /**
+         * Registra un resultado para cerrarlo al finalizar la transacción
+         *
+         * @param resultSet resultado abierto en la transacción
+         * @return el mismo resultado
+         */
+        private ResultSet track(ResultSet resultSet) {
+            resultSets.add(resultSet);
+            return resultSet;
+        }
+
+        /**
+         * Cierra todos los resultados abiertos durante la transacción
+         * Las sentencias no se cierran porque pertenecen a la caché de la conexión
+         */
+        private void closeResultSets() {
+            for (ResultSet resultSet : resultSets) {
+                try {
+                    resultSet.close();
+                } catch (SQLException e) {
+                    logger.warn("Error al cerrar un resultado: " + e);
+                }
+            }
+            resultSets.clear();
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,21 @@
+package com.madirex.services.database;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Convierte la fila actual de un ResultSet en un objeto
+ *
+ * @param <T> Tipo del objeto
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+    /**
+     * Convierte la fila actual del resultado
+     *
+     * @param resultSet resultado situado en la fila a convertir
+     * @return objeto de la fila
+     * @throws SQLException No se ha podido leer la fila
+     */
+    T map(ResultSet resultSet) throws SQLException;
+}
@@ -0,0 +1,103 @@
+package com.madirex.services.database;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Migraciones versionadas del esquema de la base de datos
+ * Las migraciones son los recursos db/migration/V1.sql, V2.sql... y se aplican en orden. La última versión
+ * aplicada se guarda en la tabla schema_version, por lo que una base de datos existente solo recibe las
+ * migraciones que le faltan. Las migraciones deben poder ejecutarse sobre un esquema ya creado por data.sql
+ */
+public class SchemaMigrator {
+    private static final String MIGRATION_PATH = "db/migration/V%d.sql";
+    private static final String CREATE_VERSION_TABLE = "CREATE TABLE IF NOT EXISTS schema_version (" +
+            "version INT PRIMARY KEY, applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)";
+    private final Logger logger = LoggerFactory.getLogger(SchemaMigrator.class);
+    private final ClassLoader classLoader;
+
+    /**
+     * Constructor de la clase
+     */
+    public SchemaMigrator() {
+        this.classLoader = SchemaMigrator.class.getClassLoader();
+    }
+
+    /**
+     * Aplica las migraciones pendientes
+     * Cada migración se aplica y se registra en su propia transacción
+     *
+     * @param connection conexión con la base de datos
+     * @return número de migraciones aplicadas
+     * @throws SQLException Error al aplicar una migración
+     */
+    public int migrate(Connection connection) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_VERSION_TABLE);
+            int version = currentVersion(connection);
+            int applied = 0;
+            String script;
+            while ((script = readMigration(version + 1)) != null) {
+                version++;
+                connection.setAutoCommit(false);
+                try {
+                    statement.execute(script);
+                    try (PreparedStatement insert = connection.prepareStatement(
+                            "INSERT INTO schema_version (version) VALUES (?)")) {
+                        insert.setInt(1, version);
+                        insert.executeUpdate();
+                    }
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw new SQLException("Error al aplicar la migración V" + version + ": " + e.getMessage(), e);
+                }
+                logger.info("Migración V" + version + " aplicada");
+                applied++;
+            }
+            return applied;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Devuelve la última versión del esquema aplicada
+     *
+     * @param connection conexión con la base de datos
+     * @return versión actual o 0 si no se ha aplicado ninguna migración
+     * @throws SQLException Error al consultar la versión
+     */
+    public int currentVersion(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet res = statement.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            res.next();
+            return res.getInt(1);
+        }
+    }
+
+    /**
+     * Lee el script de una migración
+     *
+     * @param version versión de la migración
+     * @return contenido del script o null si no existe
+     */
+    private String readMigration(int version) {
+        try (InputStream in = classLoader.getResourceAsStream(String.format(MIGRATION_PATH, version))) {
+            return in == null ? null : new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
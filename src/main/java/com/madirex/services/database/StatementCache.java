@@ -0,0 +1,135 @@
+package com.madirex.services.database;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caché LRU de sentencias preparadas de una conexión, indexada por el texto SQL
+ * Una conexión solo la usa un hilo a la vez, por lo que la caché no necesita sincronización propia
+ */
+public class StatementCache {
+    private final Logger logger = LoggerFactory.getLogger(StatementCache.class);
+    private final Connection connection;
+    private final Stats stats;
+    private final Map<String, PreparedStatement> statements;
+
+    /**
+     * Constructor de la clase
+     *
+     * @param connection conexión en la que se preparan las sentencias
+     * @param capacity   número máximo de sentencias guardadas
+     * @param stats      contadores compartidos de aciertos, fallos y desalojos
+     */
+    public StatementCache(Connection connection, int capacity, Stats stats) {
+        this.connection = connection;
+        this.stats = stats;
+        this.statements = new LinkedHashMap<>(capacity, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > capacity) {
+                    stats.evictions.increment();
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Devuelve la sentencia preparada para el SQL dado, preparándola si no está en la caché
+     *
+     * @param sql               consulta SQL
+     * @param autoGeneratedKeys Statement.RETURN_GENERATED_KEYS o Statement.NO_GENERATED_KEYS
+     * @return sentencia preparada
+     * @throws SQLException No se ha podido preparar la sentencia
+     */
+    public PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+        String key = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ? "K:" + sql : "N:" + sql;
+        PreparedStatement preparedStatement = statements.get(key);
+        if (preparedStatement != null && !preparedStatement.isClosed()) {
+            stats.hits.increment();
+            return preparedStatement;
+        }
+        stats.misses.increment();
+        preparedStatement = connection.prepareStatement(sql, autoGeneratedKeys);
+        statements.put(key, preparedStatement);
+        return preparedStatement;
+    }
+
+    /**
+     * Cierra todas las sentencias de la caché
+     */
+    public void close() {
+        statements.values().forEach(this::closeQuietly);
+        statements.clear();
+    }
+
+    /**
+     * Cierra una sentencia ignorando los errores
+     *
+     * @param statement sentencia a cerrar
+     */
+    private void closeQuietly(Statement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            logger.warn("Error al cerrar una sentencia de la caché: " + e);
+        }
+    }
+
+    /**
+     * Contadores de aciertos, fallos y desalojos de las cachés de sentencias
+     */
+    public static class Stats {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+
+        /**
+         * Devuelve el número de sentencias reutilizadas desde la caché
+         *
+         * @return número de aciertos
+         */
+        public long getHits() {
+            return hits.sum();
+        }
+
+        /**
+         * Devuelve el número de sentencias que ha habido que preparar
+         *
+         * @return número de fallos
+         */
+        public long getMisses() {
+            return misses.sum();
+        }
+
+        /**
+         * Devuelve el número de sentencias cerradas por superar la capacidad de la caché
+         *
+         * @return número de desalojos
+         */
+        public long getEvictions() {
+            return evictions.sum();
+        }
+
+        /**
+         * Devuelve un resumen de los contadores
+         *
+         * @return resumen de los contadores
+         */
+        @Override
+        public String toString() {
+            return "StatementCache.Stats(hits=" + getHits() + ", misses=" + getMisses()
+                    + ", evictions=" + getEvictions() + ")";
+        }
+    }
+}
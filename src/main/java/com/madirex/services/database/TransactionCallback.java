@@ -0,0 +1,19 @@
+package com.madirex.services.database;
+
+import java.sql.SQLException;
+
+/**
+ * Operación que se ejecuta dentro de una transacción
+ *
+ * @param <T> Tipo del resultado
+ */
+@FunctionalInterface
+public interface TransactionCallback<T> {
+    /**
+     * Ejecuta la operación con la transacción del hilo actual
+     *
+     * @return resultado de la operación
+     * @throws SQLException No se ha podido realizar la operación
+     */
+    T execute() throws SQLException;
+}
@@ -0,0 +1,93 @@
+package com.madirex.services.io;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Operaciones con ficheros comunes a los distintos tipos de backup
+ */
+public final class BackupFiles {
+
+    /**
+     * Constructor privado para evitar la creación de instancia
+     */
+    private BackupFiles() {
+    }
+
+    /**
+     * Sustituye un fichero por otro del mismo directorio de forma atómica si el sistema de ficheros lo permite
+     *
+     * @param source Fichero nuevo
+     * @param target Fichero a sustituir
+     * @throws IOException Si no se puede mover el fichero
+     */
+    public static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Sustituye un directorio por otro del mismo directorio padre sin quedarse en ningún momento sin uno de los dos
+     * El directorio anterior se aparta con el sufijo .old, el nuevo ocupa su lugar y solo entonces se borra el
+     * anterior; si el nuevo no se puede mover, el anterior vuelve a su sitio. Si un fallo previo dejó solo el
+     * directorio apartado, primero se recupera
+     *
+     * @param source Directorio nuevo
+     * @param target Directorio a sustituir
+     * @throws IOException Si no se puede sustituir el directorio
+     */
+    public static void replaceDirectory(Path source, Path target) throws IOException {
+        Path old = target.resolveSibling(target.getFileName() + ".old");
+        if (Files.exists(old)) {
+            if (Files.exists(target)) {
+                deleteDirectory(old);
+            } else {
+                moveAtomically(old, target);
+            }
+        }
+        boolean replacing = Files.exists(target);
+        if (replacing) {
+            moveAtomically(target, old);
+        }
+        try {
+            moveAtomically(source, target);
+        } catch (IOException e) {
+            if (replacing) {
+                try {
+                    moveAtomically(old, target);
+                } catch (IOException restoreException) {
+                    e.addSuppressed(restoreException);
+                }
+            }
+            throw e;
+        }
+        if (replacing) {
+            deleteDirectory(old);
+        }
+    }
+
+    /**
+     * Borra un directorio y su contenido, si existe
+     *
+     * @param dir Directorio a borrar
+     * @throws IOException Si no se puede borrar
+     */
+    public static void deleteDirectory(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path file : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
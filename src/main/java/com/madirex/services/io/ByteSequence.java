@@ -0,0 +1,92 @@
+package com.madirex.services.io;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Vista de solo lectura de un rango de bytes como secuencia de caracteres, sin copiarlos
+ * Cada byte se interpreta como un carácter ISO-8859-1, lo que es correcto para los campos ASCII del CSV;
+ * el texto libre se decodifica como UTF-8 con decodeUtf8. La vista se reutiliza entre líneas
+ */
+final class ByteSequence implements CharSequence {
+    private ByteBuffer buffer;
+    private int offset;
+    private int length;
+    private byte[] scratch = new byte[64];
+
+    /**
+     * Apunta la vista a un nuevo rango de bytes
+     *
+     * @param buffer buffer de origen
+     * @param offset posición absoluta del primer byte
+     * @param length número de bytes
+     * @return la propia vista
+     */
+    ByteSequence reset(ByteBuffer buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+        return this;
+    }
+
+    /**
+     * Decodifica como UTF-8 un rango de la vista
+     *
+     * @param start inicio del rango
+     * @param end   fin del rango
+     * @return texto decodificado
+     */
+    String decodeUtf8(int start, int end) {
+        int size = end - start;
+        if (scratch.length < size) {
+            scratch = new byte[Math.max(size, scratch.length * 2)];
+        }
+        buffer.get(offset + start, scratch, 0, size);
+        return new String(scratch, 0, size, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Devuelve el número de caracteres de la vista
+     *
+     * @return número de bytes del rango
+     */
+    @Override
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Devuelve el carácter en una posición de la vista
+     *
+     * @param index posición del carácter
+     * @return byte en esa posición como carácter ISO-8859-1
+     */
+    @Override
+    public char charAt(int index) {
+        return (char) (buffer.get(offset + index) & 0xFF);
+    }
+
+    /**
+     * Devuelve una copia de un rango de la vista
+     *
+     * @param start inicio del rango
+     * @param end   fin del rango
+     * @return copia del rango como String ISO-8859-1
+     */
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        buffer.get(offset + start, bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Devuelve el contenido completo de la vista decodificado como UTF-8
+     *
+     * @return contenido de la vista
+     */
+    @Override
+    public String toString() {
+        return decodeUtf8(0, length);
+    }
+}
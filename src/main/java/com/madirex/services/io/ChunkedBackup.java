@@ -0,0 +1,317 @@
+package com.madirex.services.io;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.madirex.models.BackupManifest;
+import com.madirex.models.Funko;
+import com.madirex.repositories.funko.FunkoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Backup por bloques de los Funkos
+ * La tabla se divide en rangos de id y cada rango, leído con un cursor, se escribe en su propio fichero JSON
+ * comprimido con gzip. El manifiesto del backup guarda el número de Funkos, el tamaño y la suma SHA-256 de cada
+ * bloque. Los bloques se escriben, comprueban y restauran en paralelo con un pool de hilos propio de cada operación
+ */
+public class ChunkedBackup {
+    private static final int GZIP_BUFFER = 64 * 1024;
+    private static final String CHUNK_FILE = "chunk-%05d.json.gz";
+    private final Logger logger = LoggerFactory.getLogger(ChunkedBackup.class);
+    private final FunkoRepository funkoRepository;
+    private final Gson gson;
+    private final int chunkRows;
+    private final int workers;
+
+    /**
+     * Constructor de la clase
+     *
+     * @param funkoRepository repositorio del que se leen los Funkos
+     * @param gson            Gson con el que se escriben y leen los Funkos y el manifiesto
+     * @param chunkRows       número máximo de Funkos por bloque
+     * @param workers         número de hilos que escriben, comprueban o restauran bloques
+     */
+    public ChunkedBackup(FunkoRepository funkoRepository, Gson gson, int chunkRows, int workers) {
+        if (chunkRows < 1 || workers < 1) {
+            throw new IllegalArgumentException("La configuración del backup por bloques debe ser mayor que 0");
+        }
+        this.funkoRepository = funkoRepository;
+        this.gson = gson;
+        this.chunkRows = chunkRows;
+        this.workers = workers;
+    }
+
+    /**
+     * Realiza un backup por bloques en el directorio parent/name
+     * El backup se prepara en un directorio temporal que sustituye al backup anterior solo si todos los bloques
+     * y el manifiesto se han escrito bien; el anterior no se borra hasta que el nuevo está en su sitio
+     *
+     * @param parent Directorio donde se guardará el backup
+     * @param name   Nombre del directorio del backup
+     * @return Manifiesto del backup
+     */
+    public BackupManifest write(Path parent, String name) throws SQLException, IOException {
+        List<Long> starts = funkoRepository.findRangeStartIds(chunkRows);
+        Path temp = Files.createTempDirectory(parent, name + ".tmp");
+        ExecutorService executor = newExecutor();
+        try {
+            List<Future<BackupManifest.Chunk>> futures = new ArrayList<>(starts.size());
+            for (int i = 0; i < starts.size(); i++) {
+                long fromId = starts.get(i);
+                long toId = i + 1 < starts.size() ? starts.get(i + 1) : Long.MAX_VALUE;
+                Path file = temp.resolve(String.format(CHUNK_FILE, i));
+                futures.add(executor.submit(() -> writeChunk(file, fromId, toId)));
+            }
+            List<BackupManifest.Chunk> chunks = new ArrayList<>(futures.size());
+            long rows = 0;
+            for (Future<BackupManifest.Chunk> future : futures) {
+                BackupManifest.Chunk chunk = await(future);
+                chunks.add(chunk);
+                rows += chunk.rows();
+            }
+            BackupManifest manifest = new BackupManifest(BackupManifest.CURRENT_VERSION,
+                    LocalDateTime.now().toString(), rows, chunks);
+            try (Writer writer = Files.newBufferedWriter(temp.resolve(BackupManifest.FILE_NAME),
+                    StandardCharsets.UTF_8)) {
+                new GsonBuilder().setPrettyPrinting().create().toJson(manifest, writer);
+            }
+            Path target = parent.resolve(name);
+            BackupFiles.replaceDirectory(temp, target);
+            logger.debug("Escritos " + chunks.size() + " bloques con " + rows + " Funkos en " + target);
+            return manifest;
+        } finally {
+            executor.shutdownNow();
+            BackupFiles.deleteDirectory(temp);
+        }
+    }
+
+    /**
+     * Lee un backup por bloques y pasa cada bloque al restaurador
+     * Primero se comprueban el tamaño y la suma SHA-256 de todos los bloques, de forma que un backup dañado no
+     * llega a restaurarse en parte, y después se restauran los bloques en paralelo, por lo que el restaurador
+     * debe admitir llamadas desde varios hilos
+     *
+     * @param dir      Directorio del backup
+     * @param restorer Restaurador de los Funkos de cada bloque
+     * @return Manifiesto del backup
+     */
+    public BackupManifest read(Path dir, ChunkRestorer restorer) throws SQLException, IOException {
+        Path backup = dir.normalize();
+        BackupManifest manifest = readManifest(backup);
+        ExecutorService executor = newExecutor();
+        try {
+            List<Future<Void>> verifications = new ArrayList<>(manifest.chunks().size());
+            for (BackupManifest.Chunk chunk : manifest.chunks()) {
+                verifications.add(executor.submit(() -> {
+                    verifyChunk(backup, chunk);
+                    return null;
+                }));
+            }
+            for (Future<Void> verification : verifications) {
+                await(verification);
+            }
+            List<Future<Void>> restores = new ArrayList<>(manifest.chunks().size());
+            for (BackupManifest.Chunk chunk : manifest.chunks()) {
+                restores.add(executor.submit(() -> {
+                    readChunk(backup.resolve(chunk.file()), restorer);
+                    return null;
+                }));
+            }
+            for (Future<Void> restore : restores) {
+                await(restore);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return manifest;
+    }
+
+    /**
+     * Lee y comprueba el manifiesto de un backup por bloques
+     *
+     * @param dir Directorio del backup
+     * @return Manifiesto del backup
+     * @throws IOException Si el manifiesto no se puede leer, no es válido o es de otra versión
+     */
+    private BackupManifest readManifest(Path dir) throws IOException {
+        BackupManifest manifest;
+        try (Reader reader = Files.newBufferedReader(dir.resolve(BackupManifest.FILE_NAME), StandardCharsets.UTF_8)) {
+            manifest = gson.fromJson(reader, BackupManifest.class);
+        } catch (JsonParseException | IllegalStateException | DateTimeParseException e) {
+            throw new IOException("El manifiesto del backup " + dir + " no es válido: " + e.getMessage(), e);
+        }
+        if (manifest == null || manifest.version() != BackupManifest.CURRENT_VERSION || manifest.chunks() == null) {
+            throw new IOException("Versión del backup " + dir + " no soportada");
+        }
+        return manifest;
+    }
+
+    /**
+     * Escribe en un fichero comprimido los Funkos de un rango de id
+     *
+     * @param file   Fichero del bloque
+     * @param fromId Primer id del rango, incluido
+     * @param toId   Último id del rango, excluido
+     * @return Bloque escrito
+     */
+    private BackupManifest.Chunk writeChunk(Path file, long fromId, long toId) throws SQLException, IOException {
+        MessageDigest digest = sha256();
+        long rows = 0;
+        try (Stream<Funko> funkos = funkoRepository.streamRange(fromId, toId);
+             JsonWriter writer = new JsonWriter(new BufferedWriter(new OutputStreamWriter(
+                     new GZIPOutputStream(new DigestOutputStream(Files.newOutputStream(file), digest), GZIP_BUFFER),
+                     StandardCharsets.UTF_8)))) {
+            writer.beginArray();
+            Iterator<Funko> iterator = funkos.iterator();
+            while (iterator.hasNext()) {
+                gson.toJson(iterator.next(), Funko.class, writer);
+                rows++;
+            }
+            writer.endArray();
+        } catch (JsonIOException e) {
+            throw e.getCause() instanceof IOException cause ? cause : new IOException(e);
+        }
+        return new BackupManifest.Chunk(file.getFileName().toString(), rows, Files.size(file),
+                HexFormat.of().formatHex(digest.digest()));
+    }
+
+    /**
+     * Comprueba que el fichero de un bloque está dentro del backup y no está dañado
+     *
+     * @param dir   Directorio del backup
+     * @param chunk Bloque a comprobar
+     * @throws IOException Si el fichero no existe, está fuera del backup o no coincide con el manifiesto
+     */
+    private static void verifyChunk(Path dir, BackupManifest.Chunk chunk) throws IOException {
+        Path file = dir.resolve(chunk.file()).normalize();
+        if (!file.startsWith(dir)) {
+            throw new IOException("El bloque " + chunk.file() + " está fuera del directorio del backup");
+        }
+        MessageDigest digest = sha256();
+        try (InputStream input = new DigestInputStream(Files.newInputStream(file), digest)) {
+            input.transferTo(OutputStream.nullOutputStream());
+        }
+        if (Files.size(file) != chunk.bytes()
+                || !HexFormat.of().formatHex(digest.digest()).equalsIgnoreCase(chunk.sha256())) {
+            throw new IOException("El bloque " + chunk.file() + " del backup está dañado");
+        }
+    }
+
+    /**
+     * Descomprime un bloque y pasa su array JSON de Funkos al restaurador
+     *
+     * @param file     Fichero del bloque
+     * @param restorer Restaurador de los Funkos del bloque
+     */
+    private static void readChunk(Path file, ChunkRestorer restorer) throws SQLException, IOException {
+        try (JsonReader reader = new JsonReader(new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file), GZIP_BUFFER), StandardCharsets.UTF_8)))) {
+            restorer.restore(reader);
+        } catch (JsonParseException | IllegalStateException | DateTimeParseException e) {
+            throw new IOException("El bloque " + file.getFileName() + " no es válido: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Crea el pool de hilos de una operación del backup
+     *
+     * @return pool de workers hilos
+     */
+    private ExecutorService newExecutor() {
+        return Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "funko-backup");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Espera el resultado de una tarea del backup y propaga su error
+     *
+     * @param future Tarea
+     * @param <T>    Tipo del resultado
+     * @return Resultado de la tarea
+     */
+    private static <T> T await(Future<T> future) throws SQLException, IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Backup interrumpido");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Crea un calculador de sumas SHA-256
+     *
+     * @return calculador SHA-256
+     */
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    /**
+     * Restaurador de los Funkos de un bloque
+     */
+    @FunctionalInterface
+    public interface ChunkRestorer {
+        /**
+         * Restaura los Funkos de un bloque
+         *
+         * @param reader Lector situado al principio del array JSON de Funkos del bloque
+         */
+        void restore(JsonReader reader) throws SQLException, IOException;
+    }
+}
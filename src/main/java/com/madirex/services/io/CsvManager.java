@@ -3,19 +3,23 @@ package com.madirex.services.io;
 import com.madirex.exceptions.CreateFolderException;
 import com.madirex.exceptions.ReadCSVFailException;
 import com.madirex.models.Funko;
-import com.madirex.models.Model;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Clase CsvManager que administra la exportación e importación de datos CSV
@@ -23,6 +27,7 @@ import java.util.UUID;
 public class CsvManager {
 
     private static CsvManager csvManagerInstance;
+    private final Logger logger = LoggerFactory.getLogger(CsvManager.class);
 
     /**
      * Constructor privado para evitar la creación de instancia
@@ -46,32 +51,119 @@ public class CsvManager {
 
     /**
      * Lee un archivo CSV y lo convierte en un Optional de la lista de Funko
+     * Carga el archivo completo en memoria; para archivos grandes usar streamFunkos o readFunkosInChunks
      *
      * @param path Ruta del archivo CSV
      * @return Optional de la lista de Funko
      * @throws ReadCSVFailException Excepción al leer el archivo CSV
      */
     public Optional<List<Funko>> fileToFunkoList(String path) throws ReadCSVFailException {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
-            return Optional.of(reader.lines()
-                    .map(line -> line.split(","))
+        try (Stream<Funko> funkos = streamFunkos(path)) {
+            return Optional.of(funkos.toList());
+        } catch (UncheckedIOException e) {
+            throw new ReadCSVFailException(e.getMessage());
+        }
+    }
+
+    /**
+     * Devuelve un Stream de Funko que lee y convierte las líneas del archivo CSV bajo demanda
+     * Las filas mal formadas se omiten y se registran en el log
+     * El Stream mantiene el archivo abierto, por lo que se debe cerrar tras usarlo
+     *
+     * @param path Ruta del archivo CSV
+     * @return Stream de Funko
+     * @throws ReadCSVFailException Excepción al abrir el archivo CSV
+     */
+    public Stream<Funko> streamFunkos(String path) throws ReadCSVFailException {
+        return streamFunkos(path, this::logRowError);
+    }
+
+    /**
+     * Devuelve un Stream de Funko que lee y convierte las líneas del archivo CSV bajo demanda
+     * Las filas mal formadas se omiten y se notifican al receptor de errores
+     * El Stream mantiene el archivo abierto, por lo que se debe cerrar tras usarlo, y es secuencial
+     * porque el parser reutiliza sus buffers entre líneas
+     *
+     * @param path         Ruta del archivo CSV
+     * @param errorHandler Receptor de las filas mal formadas
+     * @return Stream de Funko
+     * @throws ReadCSVFailException Excepción al abrir el archivo CSV
+     */
+    public Stream<Funko> streamFunkos(String path, Consumer<FunkoCsvParser.RowError> errorHandler)
+            throws ReadCSVFailException {
+        FunkoCsvParser parser = new FunkoCsvParser(errorHandler);
+        AtomicLong lineNumber = new AtomicLong(1);
+        try {
+            return Files.lines(Paths.get(path), StandardCharsets.UTF_8)
                     .skip(1)
-                    .map(values -> Funko.builder()
-                            .cod(UUID.fromString(values[0].chars().limit(36).collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append)
-                                    .toString()))
-                            .name(values[1])
-                            .model(Model.valueOf(values[2]))
-                            .price(Double.parseDouble(values[3]))
-                            .releaseDate(LocalDate.parse(values[4], formatter))
-                            .build()
-                    )
-                    .toList());
+                    .map(line -> parser.parse(line, lineNumber.incrementAndGet()))
+                    .filter(Objects::nonNull);
         } catch (IOException e) {
             throw new ReadCSVFailException(e.getMessage());
         }
     }
 
+    /**
+     * Lee un archivo CSV y entrega los Funko en bloques de como máximo chunkSize elementos
+     * El siguiente bloque no se lee hasta que el consumidor termina con el anterior, por lo que
+     * la memoria usada no depende del tamaño del archivo
+     *
+     * @param path      Ruta del archivo CSV
+     * @param chunkSize Número máximo de Funko por bloque
+     * @param consumer  Consumidor de cada bloque
+     * @return Número total de Funko leídos
+     * @throws ReadCSVFailException Excepción al leer el archivo CSV
+     */
+    public long readFunkosInChunks(String path, int chunkSize, Consumer<List<Funko>> consumer)
+            throws ReadCSVFailException {
+        return readFunkosInChunks(path, chunkSize, consumer, this::logRowError);
+    }
+
+    /**
+     * Lee un archivo CSV y entrega los Funko en bloques de como máximo chunkSize elementos
+     * Las filas mal formadas se omiten y se notifican al receptor de errores
+     *
+     * @param path         Ruta del archivo CSV
+     * @param chunkSize    Número máximo de Funko por bloque
+     * @param consumer     Consumidor de cada bloque
+     * @param errorHandler Receptor de las filas mal formadas
+     * @return Número total de Funko leídos
+     * @throws ReadCSVFailException Excepción al leer el archivo CSV
+     */
+    public long readFunkosInChunks(String path, int chunkSize, Consumer<List<Funko>> consumer,
+                                   Consumer<FunkoCsvParser.RowError> errorHandler) throws ReadCSVFailException {
+        long total = 0;
+        try (Stream<Funko> funkos = streamFunkos(path, errorHandler)) {
+            Iterator<Funko> iterator = funkos.iterator();
+            List<Funko> chunk = new ArrayList<>(chunkSize);
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == chunkSize) {
+                    consumer.accept(chunk);
+                    total += chunk.size();
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                consumer.accept(chunk);
+                total += chunk.size();
+            }
+        } catch (UncheckedIOException e) {
+            throw new ReadCSVFailException(e.getMessage());
+        }
+        return total;
+    }
+
+    /**
+     * Registra en el log una fila del CSV que no se ha podido convertir
+     *
+     * @param error Fila mal formada
+     */
+    private void logRowError(FunkoCsvParser.RowError error) {
+        String msg = "Línea " + error.lineNumber() + " del CSV ignorada (" + error.message() + "): " + error.line();
+        logger.warn(msg);
+    }
+
     /**
      * Crea la carpeta out si no existe
      *
@@ -0,0 +1,368 @@
+package com.madirex.services.io;
+
+import com.madirex.models.Funko;
+import com.madirex.models.Model;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Parser de filas CSV de Funko con el formato COD,NOMBRE,MODELO,PRECIO,FECHA_LANZAMIENTO
+ * Recorre cada línea carácter a carácter sin expresiones regulares, admite campos entre comillas
+ * (con "" como comilla escapada) y convierte UUID, fecha y precio directamente desde los caracteres.
+ * También puede leer las líneas directamente desde un ByteBuffer (por ejemplo, un archivo mapeado en memoria)
+ * sin crear un String por línea. Reutiliza sus buffers entre líneas, por lo que cada instancia solo debe
+ * usarse desde un hilo
+ */
+public class FunkoCsvParser {
+    private static final int FIELDS = 5;
+    private static final int UUID_LENGTH = 36;
+    private static final Model[] MODELS = Model.values();
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private final Consumer<RowError> errorHandler;
+    private final StringBuilder[] unquoted = new StringBuilder[FIELDS];
+    private final CharSequence[] sources = new CharSequence[FIELDS];
+    private final int[] starts = new int[FIELDS];
+    private final int[] ends = new int[FIELDS];
+    private final ByteSequence byteLine = new ByteSequence();
+
+    /**
+     * Constructor de la clase
+     *
+     * @param errorHandler receptor de las filas mal formadas
+     */
+    public FunkoCsvParser(Consumer<RowError> errorHandler) {
+        this.errorHandler = errorHandler;
+        for (int i = 0; i < FIELDS; i++) {
+            unquoted[i] = new StringBuilder(32);
+        }
+    }
+
+    /**
+     * Convierte una línea del CSV codificada en UTF-8 dentro de un buffer, sin copiarla a un String
+     *
+     * @param buffer   buffer que contiene la línea
+     * @param offset   posición absoluta del primer byte de la línea
+     * @param length   número de bytes de la línea, sin el salto de línea
+     * @param position posición de la línea en el archivo, para los mensajes de error
+     * @return Funko leído o null si la línea está vacía o mal formada
+     */
+    public Funko parse(ByteBuffer buffer, int offset, int length, long position) {
+        return parse(byteLine.reset(buffer, offset, length), position);
+    }
+
+    /**
+     * Convierte una línea del CSV en un Funko
+     * Las líneas vacías se ignoran y las mal formadas se notifican al receptor de errores
+     *
+     * @param line       línea del CSV sin el salto de línea
+     * @param lineNumber número de línea en el archivo, para los mensajes de error
+     * @return Funko leído o null si la línea está vacía o mal formada
+     */
+    public Funko parse(CharSequence line, long lineNumber) {
+        if (line.isEmpty()) {
+            return null;
+        }
+        try {
+            tokenize(line);
+            return Funko.builder()
+                    .cod(parseUuid(sources[0], starts[0], ends[0]))
+                    .name(text(line, 1))
+                    .model(parseModel(sources[2], starts[2], ends[2]))
+                    .price(parseDouble(sources[3], starts[3], ends[3]))
+                    .releaseDate(parseDate(sources[4], starts[4], ends[4]))
+                    .build();
+        } catch (IllegalArgumentException | DateTimeException e) {
+            errorHandler.accept(new RowError(lineNumber, line.toString(), e.getMessage()));
+            return null;
+        }
+    }
+
+    /**
+     * Separa la línea en sus cinco campos guardando el origen y los límites de cada uno
+     * Los campos sin comillas apuntan directamente a la línea; los entrecomillados se copian sin las
+     * comillas a un buffer reutilizable
+     *
+     * @param line línea del CSV
+     */
+    private void tokenize(CharSequence line) {
+        int length = line.length();
+        int position = 0;
+        for (int field = 0; field < FIELDS; field++) {
+            if (position > length) {
+                throw new IllegalArgumentException("Se esperaban " + FIELDS + " campos y hay " + field);
+            }
+            if (position < length && line.charAt(position) == '"') {
+                position = readQuoted(line, position + 1, field);
+            } else {
+                int end = position;
+                while (end < length && line.charAt(end) != ',') {
+                    end++;
+                }
+                sources[field] = line;
+                starts[field] = position;
+                ends[field] = end;
+                position = end;
+            }
+            if (position < length && line.charAt(position) != ',') {
+                throw new IllegalArgumentException("Carácter inesperado tras el campo " + (field + 1));
+            }
+            position++;
+        }
+        if (position <= length) {
+            throw new IllegalArgumentException("La línea tiene más de " + FIELDS + " campos");
+        }
+    }
+
+    /**
+     * Lee un campo entre comillas a partir de la posición siguiente a la comilla de apertura
+     *
+     * @param line     línea del CSV
+     * @param position posición siguiente a la comilla de apertura
+     * @param field    índice del campo
+     * @return posición siguiente a la comilla de cierre
+     */
+    private int readQuoted(CharSequence line, int position, int field) {
+        StringBuilder buffer = unquoted[field];
+        buffer.setLength(0);
+        int length = line.length();
+        while (position < length) {
+            char c = line.charAt(position++);
+            if (c == '"') {
+                if (position < length && line.charAt(position) == '"') {
+                    buffer.append('"');
+                    position++;
+                } else {
+                    sources[field] = buffer;
+                    starts[field] = 0;
+                    ends[field] = buffer.length();
+                    return position;
+                }
+            } else {
+                buffer.append(c);
+            }
+        }
+        throw new IllegalArgumentException("Comillas sin cerrar en el campo " + (field + 1));
+    }
+
+    /**
+     * Devuelve el texto de un campo
+     * Si la línea procede de bytes, el texto se decodifica como UTF-8
+     *
+     * @param line  línea del CSV
+     * @param field índice del campo
+     * @return texto del campo
+     */
+    private String text(CharSequence line, int field) {
+        CharSequence source = sources[field];
+        if (source instanceof ByteSequence bytes) {
+            return bytes.decodeUtf8(starts[field], ends[field]);
+        }
+        String value = source.subSequence(starts[field], ends[field]).toString();
+        if (line instanceof ByteSequence && !isAscii(value)) {
+            return new String(value.getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+    /**
+     * Comprueba si un texto solo contiene caracteres ASCII
+     *
+     * @param value texto a comprobar
+     * @return ¿Solo ASCII?
+     */
+    private static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0x7F) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Convierte un UUID en formato canónico leyendo los dígitos hexadecimales directamente
+     * Como el formato original, solo se tienen en cuenta los 36 primeros caracteres; si el campo no
+     * sigue el formato canónico se delega en UUID.fromString
+     *
+     * @param s     texto de origen
+     * @param start inicio del campo
+     * @param end   fin del campo
+     * @return UUID leído
+     */
+    static UUID parseUuid(CharSequence s, int start, int end) {
+        end = Math.min(end, start + UUID_LENGTH);
+        if (end - start != UUID_LENGTH || s.charAt(start + 8) != '-' || s.charAt(start + 13) != '-'
+                || s.charAt(start + 18) != '-' || s.charAt(start + 23) != '-') {
+            return UUID.fromString(s.subSequence(start, end).toString());
+        }
+        long msb = 0;
+        long lsb = 0;
+        for (int i = start; i < start + 18; i++) {
+            if (i != start + 8 && i != start + 13) {
+                msb = (msb << 4) | hexValue(s.charAt(i));
+            }
+        }
+        for (int i = start + 19; i < end; i++) {
+            if (i != start + 23) {
+                lsb = (lsb << 4) | hexValue(s.charAt(i));
+            }
+        }
+        return new UUID(msb, lsb);
+    }
+
+    /**
+     * Convierte una fecha con formato yyyy-MM-dd sin pasar por DateTimeFormatter
+     *
+     * @param s     texto de origen
+     * @param start inicio del campo
+     * @param end   fin del campo
+     * @return fecha leída
+     */
+    static LocalDate parseDate(CharSequence s, int start, int end) {
+        if (end - start != 10 || s.charAt(start + 4) != '-' || s.charAt(start + 7) != '-') {
+            return LocalDate.parse(s.subSequence(start, end));
+        }
+        int year = parseDigits(s, start, start + 4);
+        int month = parseDigits(s, start + 5, start + 7);
+        int day = parseDigits(s, start + 8, end);
+        return LocalDate.of(year, month, day);
+    }
+
+    /**
+     * Convierte un número decimal sencillo (signo opcional, dígitos y punto decimal)
+     * Si la mantisa y la potencia de diez son exactas en double, una única división da el resultado
+     * correctamente redondeado; en cualquier otro caso se delega en Double.parseDouble
+     *
+     * @param s     texto de origen
+     * @param start inicio del campo
+     * @param end   fin del campo
+     * @return número leído
+     */
+    static double parseDouble(CharSequence s, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            negative = s.charAt(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int decimals = -1;
+        int digits = 0;
+        for (; i < end; i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (decimals >= 0) {
+                    decimals++;
+                }
+                if (mantissa >= MAX_EXACT_MANTISSA) {
+                    return Double.parseDouble(s.subSequence(start, end).toString());
+                }
+            } else if (c == '.' && decimals < 0) {
+                decimals = 0;
+            } else {
+                return Double.parseDouble(s.subSequence(start, end).toString());
+            }
+        }
+        if (digits == 0 || decimals >= POWERS_OF_TEN.length) {
+            return Double.parseDouble(s.subSequence(start, end).toString());
+        }
+        double value = decimals > 0 ? mantissa / POWERS_OF_TEN[decimals] : mantissa;
+        return negative ? -value : value;
+    }
+
+    /**
+     * Busca el modelo cuyo nombre coincide con el campo sin crear un String intermedio
+     *
+     * @param s     texto de origen
+     * @param start inicio del campo
+     * @param end   fin del campo
+     * @return modelo leído
+     */
+    static Model parseModel(CharSequence s, int start, int end) {
+        for (Model model : MODELS) {
+            String name = model.name();
+            if (name.length() == end - start && regionEquals(s, start, name)) {
+                return model;
+            }
+        }
+        throw new IllegalArgumentException("Modelo desconocido: " + s.subSequence(start, end));
+    }
+
+    /**
+     * Compara una región del texto con una cadena
+     *
+     * @param s     texto de origen
+     * @param start inicio de la región
+     * @param other cadena a comparar, de la misma longitud que la región
+     * @return ¿Iguales?
+     */
+    private static boolean regionEquals(CharSequence s, int start, String other) {
+        for (int i = 0; i < other.length(); i++) {
+            if (s.charAt(start + i) != other.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Convierte una secuencia de dígitos decimales en un entero
+     *
+     * @param s     texto de origen
+     * @param start inicio de los dígitos
+     * @param end   fin de los dígitos
+     * @return entero leído
+     */
+    private static int parseDigits(CharSequence s, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new IllegalArgumentException("Se esperaba un dígito y se ha encontrado '" + c + "'");
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Devuelve el valor de un dígito hexadecimal
+     *
+     * @param c carácter hexadecimal
+     * @return valor entre 0 y 15
+     */
+    private static int hexValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        throw new IllegalArgumentException("Carácter no hexadecimal en el UUID: '" + c + "'");
+    }
+
+    /**
+     * Fila del CSV que no se ha podido convertir
+     *
+     * @param lineNumber número de línea en el archivo, o posición en bytes de la línea si se lee desde un buffer
+     * @param line       contenido de la línea
+     * @param message    motivo del error
+     */
+    public record RowError(long lineNumber, String line, String message) {
+    }
+}
@@ -0,0 +1,455 @@
+package com.madirex.services.io;
+
+import com.madirex.exceptions.FunkoNotValidException;
+import com.madirex.exceptions.ReadCSVFailException;
+import com.madirex.models.BatchResult;
+import com.madirex.models.Funko;
+import com.madirex.services.crud.funko.FunkoService;
+import com.madirex.validators.FunkoValidator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Importación de archivos CSV de Funko en paralelo por etapas:
+ * un lector que mapea el archivo en memoria por segmentos alineados a líneas, N trabajadores que convierten
+ * y validan las líneas de cada segmento directamente desde los bytes y M escritores que guardan los Funko
+ * por lotes, cada uno con su propia conexión del pool.
+ * Las etapas se comunican mediante colas acotadas, de modo que una etapa lenta frena a las anteriores
+ * y la memoria usada no depende del tamaño del archivo. Si los trabajadores de una etapa terminan con un error,
+ * las etapas anteriores dejan de encolar en lugar de esperar a una cola que ya nadie vacía
+ */
+public class FunkoImportPipeline {
+    private static final MappedCsvReader.Segment END_OF_SEGMENTS =
+            new MappedCsvReader.Segment(-1, ByteBuffer.allocate(0));
+    private static final List<Funko> END_OF_FUNKOS = Collections.unmodifiableList(new ArrayList<>(0));
+    private static final long OFFER_TIMEOUT_MILLIS = 50;
+    private final Logger logger = LoggerFactory.getLogger(FunkoImportPipeline.class);
+    private final FunkoService funkoService;
+    private final int parsers;
+    private final int writers;
+    private final int queueCapacity;
+    private final int chunkSize;
+    private final int segmentBytes;
+
+    /**
+     * Constructor de la clase
+     *
+     * @param funkoService  servicio con el que se guardan los Funko
+     * @param parsers       número de trabajadores que convierten y validan las líneas
+     * @param writers       número de escritores en la base de datos
+     * @param queueCapacity número máximo de bloques pendientes entre dos etapas
+     * @param chunkSize     número de Funko por bloque de escritura
+     * @param segmentBytes  tamaño aproximado en bytes de cada segmento mapeado del archivo
+     */
+    public FunkoImportPipeline(FunkoService funkoService, int parsers, int writers, int queueCapacity, int chunkSize,
+                               int segmentBytes) {
+        if (parsers < 1 || writers < 1 || queueCapacity < 1 || chunkSize < 1 || segmentBytes < 1) {
+            throw new IllegalArgumentException("La configuración de la importación debe ser mayor que 0");
+        }
+        this.funkoService = funkoService;
+        this.parsers = parsers;
+        this.writers = writers;
+        this.queueCapacity = queueCapacity;
+        this.chunkSize = chunkSize;
+        this.segmentBytes = segmentBytes;
+    }
+
+    /**
+     * Importa un archivo CSV y devuelve el informe de la importación
+     *
+     * @param path ruta del archivo CSV
+     * @return informe con los contadores, el rendimiento y la ocupación de las colas
+     * @throws ReadCSVFailException Excepción al leer el archivo CSV
+     */
+    public ImportReport run(String path) throws ReadCSVFailException {
+        long start = System.nanoTime();
+        StageQueue<MappedCsvReader.Segment> segmentQueue = new StageQueue<>(queueCapacity);
+        StageQueue<List<Funko>> funkoQueue = new StageQueue<>(queueCapacity);
+        Counters counters = new Counters();
+        Stages stages = new Stages(parsers, writers);
+        ExecutorService executor = Executors.newFixedThreadPool(parsers + writers, runnable -> {
+            Thread thread = new Thread(runnable, "funko-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        IOException readError = null;
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < parsers; i++) {
+                workers.add(executor.submit(() -> parseStage(segmentQueue, funkoQueue, counters, stages)));
+            }
+            for (int i = 0; i < writers; i++) {
+                workers.add(executor.submit(() -> writeStage(funkoQueue, counters, stages)));
+            }
+            try {
+                readStage(path, segmentQueue, stages);
+            } catch (IOException e) {
+                readError = e;
+            } finally {
+                for (int i = 0; i < parsers; i++) {
+                    segmentQueue.put(END_OF_SEGMENTS, () -> stages.runningParsers.get() == 0);
+                }
+            }
+            awaitWorkers(workers);
+        } finally {
+            executor.shutdownNow();
+        }
+        if (readError != null) {
+            throw new ReadCSVFailException(readError.getMessage());
+        }
+        ImportReport report = new ImportReport(counters.read.sum(), counters.saved.sum(), counters.invalid.sum(),
+                counters.failed.sum(), (System.nanoTime() - start) / 1_000_000,
+                segmentQueue.stats(), funkoQueue.stats());
+        logger.info(report.toString());
+        return report;
+    }
+
+    /**
+     * Etapa de lectura: mapea el archivo por segmentos alineados a líneas y los encola
+     * Deja de leer si algún trabajador de conversión termina con un error
+     *
+     * @param path         ruta del archivo CSV
+     * @param segmentQueue cola de segmentos
+     * @param stages       estado de las etapas
+     * @throws IOException Excepción al leer el archivo
+     */
+    private void readStage(String path, StageQueue<MappedCsvReader.Segment> segmentQueue, Stages stages)
+            throws IOException {
+        try (MappedCsvReader reader = new MappedCsvReader(Paths.get(path), segmentBytes)) {
+            MappedCsvReader.Segment segment;
+            while ((segment = reader.nextSegment()) != null) {
+                if (!segmentQueue.put(segment, stages.parserFailed::get)) {
+                    logger.error("Lectura del CSV detenida porque ha fallado la conversión");
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Etapa de conversión: convierte y valida las líneas de cada segmento y encola los Funko válidos
+     * en bloques de chunkSize. El último trabajador en terminar avisa a los escritores de que no hay más bloques
+     *
+     * @param segmentQueue cola de segmentos
+     * @param funkoQueue   cola de bloques de Funko
+     * @param counters     contadores de la importación
+     * @param stages       estado de las etapas
+     */
+    private void parseStage(StageQueue<MappedCsvReader.Segment> segmentQueue, StageQueue<List<Funko>> funkoQueue,
+                            Counters counters, Stages stages) {
+        FunkoCsvParser parser = new FunkoCsvParser(error -> {
+            counters.invalid.increment();
+            String msg = "Línea en la posición " + error.lineNumber() + " del CSV ignorada (" + error.message() + ")";
+            logger.warn(msg);
+        });
+        List<Funko> pending = new ArrayList<>(chunkSize);
+        try {
+            MappedCsvReader.Segment segment;
+            while ((segment = segmentQueue.take()) != END_OF_SEGMENTS) {
+                long lines = MappedCsvReader.forEachLine(segment, (buffer, offset, length, position) -> {
+                    Funko funko = parseLine(parser, buffer, offset, length, position, counters);
+                    if (funko != null && isValid(funko, counters)) {
+                        pending.add(funko);
+                    }
+                });
+                counters.read.add(lines);
+                int from = 0;
+                while (pending.size() - from >= chunkSize) {
+                    putChunk(funkoQueue, new ArrayList<>(pending.subList(from, from + chunkSize)), stages);
+                    from += chunkSize;
+                }
+                pending.subList(0, from).clear();
+            }
+            if (!pending.isEmpty()) {
+                putChunk(funkoQueue, new ArrayList<>(pending), stages);
+            }
+        } catch (RuntimeException | Error e) {
+            stages.parserFailed.set(true);
+            throw e;
+        } finally {
+            if (stages.runningParsers.decrementAndGet() == 0) {
+                for (int i = 0; i < writers; i++) {
+                    funkoQueue.put(END_OF_FUNKOS, () -> stages.runningWriters.get() == 0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Encola un bloque de Funko para los escritores
+     *
+     * @param funkoQueue cola de bloques de Funko
+     * @param funkos     bloque a encolar
+     * @param stages     estado de las etapas
+     * @throws IllegalStateException Si ya no queda ningún escritor
+     */
+    private void putChunk(StageQueue<List<Funko>> funkoQueue, List<Funko> funkos, Stages stages) {
+        if (!funkoQueue.put(funkos, () -> stages.runningWriters.get() == 0)) {
+            throw new IllegalStateException("Todos los escritores de la importación han terminado con errores");
+        }
+    }
+
+    /**
+     * Convierte una línea de un segmento, contando como no válida la línea si la conversión falla
+     *
+     * @param parser   parser del trabajador
+     * @param buffer   buffer del segmento
+     * @param offset   posición de la línea dentro del buffer
+     * @param length   número de bytes de la línea
+     * @param position posición de la línea en el archivo
+     * @param counters contadores de la importación
+     * @return Funko leído o null si la línea está vacía o no se ha podido convertir
+     */
+    private Funko parseLine(FunkoCsvParser parser, ByteBuffer buffer, int offset, int length, long position,
+                            Counters counters) {
+        try {
+            return parser.parse(buffer, offset, length, position);
+        } catch (RuntimeException e) {
+            counters.invalid.increment();
+            String strError = "Error al convertir la línea en la posición " + position + ": " + e;
+            logger.error(strError);
+            return null;
+        }
+    }
+
+    /**
+     * Etapa de escritura: guarda cada bloque de Funko por lotes
+     *
+     * @param funkoQueue cola de bloques de Funko
+     * @param counters   contadores de la importación
+     * @param stages     estado de las etapas
+     */
+    private void writeStage(StageQueue<List<Funko>> funkoQueue, Counters counters, Stages stages) {
+        try {
+            writeChunks(funkoQueue, counters);
+        } finally {
+            stages.runningWriters.decrementAndGet();
+        }
+    }
+
+    /**
+     * Guarda los bloques de Funko de la cola hasta recibir la marca de fin
+     *
+     * @param funkoQueue cola de bloques de Funko
+     * @param counters   contadores de la importación
+     */
+    private void writeChunks(StageQueue<List<Funko>> funkoQueue, Counters counters) {
+        List<Funko> funkos;
+        while ((funkos = funkoQueue.take()) != END_OF_FUNKOS) {
+            try {
+                BatchResult<Funko> result = funkoService.saveAll(funkos);
+                counters.saved.add(result.getSaved().size());
+                counters.failed.add(result.getFailed().size());
+                result.getFailed().forEach(failure -> {
+                    String strError = "El Funko no se ha guardado: " + failure.item().getCod() + " -> " + failure.reason();
+                    logger.error(strError);
+                });
+            } catch (Exception e) {
+                counters.failed.add(funkos.size());
+                String strError = "Error al guardar un bloque de " + funkos.size() + " Funkos: " + e;
+                logger.error(strError);
+            }
+        }
+    }
+
+    /**
+     * Valida un Funko y lo cuenta como no válido si no supera la validación
+     *
+     * @param funko    Funko a validar
+     * @param counters contadores de la importación
+     * @return ¿Válido?
+     */
+    private boolean isValid(Funko funko, Counters counters) {
+        try {
+            FunkoValidator.validate(funko);
+            return true;
+        } catch (FunkoNotValidException e) {
+            counters.invalid.increment();
+            String msg = "Funko " + funko.getCod() + " no válido: " + e.getMessage();
+            logger.warn(msg);
+            return false;
+        }
+    }
+
+    /**
+     * Espera a que terminen todos los trabajadores
+     *
+     * @param workers tareas de los trabajadores
+     */
+    private void awaitWorkers(List<Future<?>> workers) {
+        for (Future<?> worker : workers) {
+            try {
+                worker.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Importación interrumpida", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Error en un trabajador de la importación", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Contadores de filas de la importación
+     */
+    private static class Counters {
+        private final LongAdder read = new LongAdder();
+        private final LongAdder saved = new LongAdder();
+        private final LongAdder invalid = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+    }
+
+    /**
+     * Estado compartido de las etapas de conversión y escritura
+     */
+    private static class Stages {
+        private final AtomicInteger runningParsers;
+        private final AtomicInteger runningWriters;
+        private final AtomicBoolean parserFailed = new AtomicBoolean();
+
+        /**
+         * Constructor de la clase
+         *
+         * @param parsers número de trabajadores de conversión
+         * @param writers número de escritores
+         */
+        private Stages(int parsers, int writers) {
+            this.runningParsers = new AtomicInteger(parsers);
+            this.runningWriters = new AtomicInteger(writers);
+        }
+    }
+
+    /**
+     * Cola acotada entre dos etapas que registra su ocupación en cada inserción
+     *
+     * @param <T> tipo de los elementos de la cola
+     */
+    private static class StageQueue<T> {
+        private final BlockingQueue<T> queue;
+        private final AtomicInteger maxDepth = new AtomicInteger();
+        private final LongAdder depthSum = new LongAdder();
+        private final LongAdder samples = new LongAdder();
+
+        /**
+         * Constructor de la clase
+         *
+         * @param capacity capacidad de la cola
+         */
+        private StageQueue(int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        /**
+         * Encola un elemento, esperando si la cola está llena hasta que haya hueco o se cancele la espera
+         *
+         * @param item      elemento a encolar
+         * @param cancelled condición que indica que ya nadie va a vaciar la cola
+         * @return ¿Encolado?
+         */
+        private boolean put(T item, BooleanSupplier cancelled) {
+            try {
+                while (!queue.offer(item, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (cancelled.getAsBoolean()) {
+                        return false;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Importación interrumpida", e);
+            }
+            int depth = queue.size();
+            maxDepth.accumulateAndGet(depth, Math::max);
+            depthSum.add(depth);
+            samples.increment();
+            return true;
+        }
+
+        /**
+         * Desencola un elemento, esperando si la cola está vacía
+         *
+         * @return elemento desencolado
+         */
+        private T take() {
+            try {
+                return queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Importación interrumpida", e);
+            }
+        }
+
+        /**
+         * Devuelve la ocupación registrada de la cola
+         *
+         * @return ocupación máxima y media de la cola
+         */
+        private QueueStats stats() {
+            long count = samples.sum();
+            return new QueueStats(maxDepth.get(), count == 0 ? 0 : (double) depthSum.sum() / count);
+        }
+    }
+
+    /**
+     * Ocupación de una cola entre etapas
+     *
+     * @param maxDepth     número máximo de bloques pendientes observado
+     * @param averageDepth número medio de bloques pendientes
+     */
+    public record QueueStats(int maxDepth, double averageDepth) {
+    }
+
+    /**
+     * Informe de una importación
+     *
+     * @param read          líneas leídas del archivo, sin la cabecera
+     * @param saved         Funko guardados
+     * @param invalid       líneas mal formadas o Funko no válidos
+     * @param failed        Funko que no se han podido guardar
+     * @param elapsedMillis duración de la importación en milisegundos
+     * @param segmentQueue  ocupación de la cola entre la lectura y la conversión
+     * @param funkoQueue    ocupación de la cola entre la conversión y la escritura
+     */
+    public record ImportReport(long read, long saved, long invalid, long failed, long elapsedMillis,
+                               QueueStats segmentQueue, QueueStats funkoQueue) {
+
+        /**
+         * Devuelve el número de líneas procesadas por segundo
+         *
+         * @return filas por segundo
+         */
+        public double rowsPerSecond() {
+            return elapsedMillis == 0 ? read : read * 1000.0 / elapsedMillis;
+        }
+
+        /**
+         * Devuelve un resumen legible del informe
+         *
+         * @return resumen del informe
+         */
+        @Override
+        public String toString() {
+            return String.format("Importación terminada: %d leídas, %d guardadas, %d no válidas, %d fallidas en %d ms "
+                            + "(%.0f filas/s). Cola de lectura: máx %d, media %.2f. Cola de escritura: máx %d, media %.2f",
+                    read, saved, invalid, failed, elapsedMillis, rowsPerSecond(),
+                    segmentQueue.maxDepth(), segmentQueue.averageDepth(), funkoQueue.maxDepth(), funkoQueue.averageDepth());
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.madirex.services.io;
+
+import com.madirex.models.Funko;
+import com.madirex.models.Model;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Lector de snapshots binarios de Funkos escritos con FunkoSnapshotWriter
+ * Lee el archivo por bloques en un buffer directo y calcula el CRC32 a medida que consume los registros;
+ * al llegar al final comprueba el número de Funkos y el CRC32 guardados
+ */
+public class FunkoSnapshotReader implements Closeable {
+    private static final Model[] MODELS = Model.values();
+    private final FileChannel channel;
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer buffer;
+    private int checked;
+    private long count;
+    private boolean ended;
+
+    /**
+     * Constructor de la clase
+     * Abre el archivo y comprueba la cabecera
+     *
+     * @param path ruta del archivo del snapshot
+     * @throws IOException Excepción al abrir el archivo o si no es un snapshot de una versión soportada
+     */
+    public FunkoSnapshotReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.buffer = ByteBuffer.allocateDirect(FunkoSnapshotWriter.DEFAULT_BUFFER_SIZE).limit(0);
+        try {
+            require(6);
+            if (buffer.getInt() != FunkoSnapshotWriter.MAGIC) {
+                throw new IOException("El archivo " + path + " no es un snapshot de Funkos");
+            }
+            short version = buffer.getShort();
+            if (version != FunkoSnapshotWriter.VERSION) {
+                throw new IOException("Versión del snapshot " + version + " no soportada");
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Lee un snapshot entero sin guardar los Funkos para comprobar su número y su CRC32
+     *
+     * @param path ruta del archivo del snapshot
+     * @return Número de Funkos del snapshot
+     * @throws IOException Excepción al leer el archivo o si el snapshot está truncado o dañado
+     */
+    public static long verify(Path path) throws IOException {
+        long rows = 0;
+        try (FunkoSnapshotReader reader = new FunkoSnapshotReader(path)) {
+            while (reader.read() != null) {
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Lee el siguiente Funko
+     *
+     * @return Funko leído o null si no quedan más
+     * @throws IOException Excepción al leer el archivo o si el snapshot está truncado o dañado
+     */
+    public Funko read() throws IOException {
+        if (ended) {
+            return null;
+        }
+        require(1);
+        byte tag = buffer.get();
+        if (tag == FunkoSnapshotWriter.END) {
+            end();
+            return null;
+        }
+        if (tag != FunkoSnapshotWriter.RECORD) {
+            throw new IOException("Registro no válido en el snapshot");
+        }
+        require(FunkoSnapshotWriter.FIXED_RECORD_BYTES - 1);
+        UUID cod = new UUID(buffer.getLong(), buffer.getLong());
+        byte model = buffer.get();
+        long cents = buffer.getLong();
+        long epochDay = buffer.getLong();
+        int length = buffer.getInt();
+        if (model < -1 || model >= MODELS.length || length < -1) {
+            throw new IOException("Registro no válido en el snapshot");
+        }
+        if (length > channel.size() - channel.position() + buffer.remaining()) {
+            throw new IOException("El snapshot está dañado: el nombre ocupa más que el resto del archivo");
+        }
+        String name = null;
+        if (length >= 0) {
+            require(length);
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            name = new String(bytes, StandardCharsets.UTF_8);
+        }
+        count++;
+        return Funko.builder()
+                .cod(cod)
+                .name(name)
+                .model(model < 0 ? null : MODELS[model])
+                .price(cents / 100.0)
+                .releaseDate(epochDay == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(epochDay))
+                .build();
+    }
+
+    /**
+     * Cierra el archivo
+     *
+     * @throws IOException Excepción al cerrar el archivo
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Comprueba el número de Funkos y el CRC32 del final del snapshot
+     *
+     * @throws IOException Si no coinciden con lo leído
+     */
+    private void end() throws IOException {
+        checksum();
+        require(12);
+        long expectedCount = buffer.getLong();
+        int expectedCrc = buffer.getInt();
+        if (expectedCount != count || expectedCrc != (int) crc.getValue()) {
+            throw new IOException("El snapshot está dañado: se esperaban " + expectedCount + " Funkos y se han leído "
+                    + count);
+        }
+        ended = true;
+    }
+
+    /**
+     * Se asegura de que hay los bytes indicados en el buffer, leyendo más del archivo si es necesario
+     *
+     * @param bytes bytes que se van a leer
+     * @throws IOException Excepción al leer el archivo o si termina antes
+     */
+    private void require(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        checksum();
+        if (buffer.capacity() < bytes) {
+            int capacity = bytes > 1 << 30 ? bytes : Integer.highestOneBit(bytes - 1) << 1;
+            ByteBuffer larger = ByteBuffer.allocateDirect(capacity);
+            larger.put(buffer);
+            buffer = larger;
+        } else {
+            buffer.compact();
+        }
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("El snapshot está truncado");
+            }
+        }
+        buffer.flip();
+        checked = 0;
+    }
+
+    /**
+     * Añade al CRC32 los bytes consumidos del buffer que aún no se han contado
+     */
+    private void checksum() {
+        crc.update(buffer.duplicate().limit(buffer.position()).position(checked));
+        checked = buffer.position();
+    }
+}
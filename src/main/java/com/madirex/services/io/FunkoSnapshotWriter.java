@@ -0,0 +1,140 @@
+package com.madirex.services.io;
+
+import com.madirex.models.Funko;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Escritor de snapshots binarios de Funkos
+ * Formato (big endian): cabecera con MAGIC (int) y VERSION (short); por cada Funko, la marca RECORD, el cod
+ * como dos long, el ordinal del modelo como byte (-1 si no tiene), el precio en céntimos como long, la fecha
+ * de lanzamiento en días desde 1970-01-01 (Long.MIN_VALUE si no tiene) y el nombre en UTF-8 precedido de su
+ * longitud en bytes (-1 si no tiene); al final, la marca END, el número de Funkos (long) y el CRC32 (int) de
+ * todo lo anterior. Los registros se escriben en un buffer directo que se vuelca al canal cuando se llena
+ */
+public class FunkoSnapshotWriter implements Closeable {
+    public static final int MAGIC = 0x464E4B53;
+    public static final short VERSION = 1;
+    static final byte RECORD = 1;
+    static final byte END = 0;
+    static final int FIXED_RECORD_BYTES = 1 + 16 + 1 + 8 + 8 + 4;
+    static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private final FileChannel channel;
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer buffer;
+    private long count;
+    private boolean finished;
+
+    /**
+     * Constructor de la clase
+     * Crea o sobrescribe el archivo y escribe la cabecera en el buffer
+     *
+     * @param path ruta del archivo del snapshot
+     * @throws IOException Excepción al abrir el archivo
+     */
+    public FunkoSnapshotWriter(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        this.buffer = ByteBuffer.allocateDirect(DEFAULT_BUFFER_SIZE);
+        buffer.putInt(MAGIC).putShort(VERSION);
+    }
+
+    /**
+     * Escribe un Funko
+     *
+     * @param funko Funko a escribir
+     * @throws IOException Excepción al escribir en el archivo
+     */
+    public void write(Funko funko) throws IOException {
+        if (finished) {
+            throw new IllegalStateException("El snapshot ya está terminado");
+        }
+        if (funko.getCod() == null) {
+            throw new IllegalArgumentException("No se puede escribir un Funko sin código");
+        }
+        byte[] name = funko.getName() == null ? null : funko.getName().getBytes(StandardCharsets.UTF_8);
+        ensure(FIXED_RECORD_BYTES + (name == null ? 0 : name.length));
+        buffer.put(RECORD)
+                .putLong(funko.getCod().getMostSignificantBits())
+                .putLong(funko.getCod().getLeastSignificantBits())
+                .put(funko.getModel() == null ? -1 : (byte) funko.getModel().ordinal())
+                .putLong(Math.round(funko.getPrice() * 100))
+                .putLong(funko.getReleaseDate() == null ? Long.MIN_VALUE : funko.getReleaseDate().toEpochDay());
+        if (name == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(name.length).put(name);
+        }
+        count++;
+    }
+
+    /**
+     * Escribe el final del snapshot con el número de Funkos y el CRC32, y vuelca el buffer al archivo
+     * Un snapshot sin terminar no se puede leer
+     *
+     * @return número de Funkos escritos
+     * @throws IOException Excepción al escribir en el archivo
+     */
+    public long finish() throws IOException {
+        if (!finished) {
+            ensure(1);
+            buffer.put(END);
+            flush(true);
+            buffer.putLong(count).putInt((int) crc.getValue());
+            flush(false);
+            finished = true;
+        }
+        return count;
+    }
+
+    /**
+     * Cierra el archivo
+     * No termina el snapshot, de forma que un error a mitad de escritura deja un archivo que no se puede leer
+     *
+     * @throws IOException Excepción al cerrar el archivo
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Se asegura de que caben los bytes indicados en el buffer, volcándolo o agrandándolo si es necesario
+     *
+     * @param bytes bytes que se van a escribir
+     * @throws IOException Excepción al escribir en el archivo
+     */
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        flush(true);
+        if (buffer.capacity() < bytes) {
+            buffer = ByteBuffer.allocateDirect(Integer.highestOneBit(bytes - 1) << 1);
+        }
+    }
+
+    /**
+     * Vuelca el buffer al archivo
+     *
+     * @param checksum ¿Los bytes del buffer forman parte del CRC32?
+     * @throws IOException Excepción al escribir en el archivo
+     */
+    private void flush(boolean checksum) throws IOException {
+        buffer.flip();
+        if (checksum) {
+            crc.update(buffer.duplicate());
+        }
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,326 @@
+package com.madirex.services.io;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.madirex.models.BackupIncrement;
+import com.madirex.models.Funko;
+import com.madirex.repositories.funko.FunkoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Cadena de backups incrementales de los Funkos en un directorio
+ * Cada backup es un fichero JSON con una cabecera (versión, secuencia y las marcas since y until), la lista de
+ * cods borrados y la lista de Funkos. El primer backup de la cadena (secuencia 0) es completo y cada uno de los
+ * siguientes contiene los cambios en el intervalo (since, until], donde since es el until del anterior
+ */
+public class IncrementalBackup {
+    private static final int VERSION = 1;
+    private static final String FILE_FORMAT = "increment-%05d.json";
+    private static final Pattern FILE_PATTERN = Pattern.compile("increment-\\d{5}\\.json");
+    private final Logger logger = LoggerFactory.getLogger(IncrementalBackup.class);
+    private final FunkoRepository funkoRepository;
+    private final Gson gson;
+    private final boolean pretty;
+    private final Duration lag;
+    private final int deleteChunkSize;
+
+    /**
+     * Constructor de la clase
+     *
+     * @param funkoRepository repositorio del que se leen los cambios
+     * @param gson            Gson con el que se escriben y leen los Funkos
+     * @param pretty          ¿Se escriben los backups con sangría?
+     * @param lag             margen que se resta a la marca de cada backup para no perder escrituras en curso
+     * @param deleteChunkSize número máximo de cods borrados que se pasan juntos al restaurador
+     */
+    public IncrementalBackup(FunkoRepository funkoRepository, Gson gson, boolean pretty, Duration lag,
+                             int deleteChunkSize) {
+        if (lag.isNegative() || deleteChunkSize < 1) {
+            throw new IllegalArgumentException("La configuración del backup incremental no es válida");
+        }
+        this.funkoRepository = funkoRepository;
+        this.gson = gson;
+        this.pretty = pretty;
+        this.lag = lag;
+        this.deleteChunkSize = deleteChunkSize;
+    }
+
+    /**
+     * Añade un backup a la cadena del directorio
+     * La marca, los borrados y los Funkos modificados se leen en una misma transacción de solo lectura, de modo
+     * que el backup es una foto coherente de la base de datos. La marca es la hora de la base de datos al
+     * empezar la transacción menos el margen, y updated_at y los borrados también se marcan con la hora de la
+     * base de datos al escribir, por lo que una escritura que no estaba confirmada al tomar la foto solo puede
+     * tener una marca anterior si su transacción ha durado más que el margen. Los Funkos modificados después
+     * de la marca van en el siguiente backup, y si el backup es el completo aparecen en los dos, lo que no
+     * afecta al resultado de la restauración
+     *
+     * @param dir Directorio de la cadena de backups
+     * @return Backup realizado
+     */
+    public BackupIncrement write(Path dir) throws SQLException, IOException {
+        List<Path> chain = list(dir);
+        int sequence = chain.size();
+        LocalDateTime since = sequence == 0 ? null : readHeader(chain.get(sequence - 1)).until();
+        String fileName = String.format(FILE_FORMAT, sequence);
+        Path temp = Files.createTempFile(dir, fileName, ".tmp");
+        try {
+            BackupIncrement increment;
+            try {
+                increment = funkoRepository.inSnapshot(() -> {
+                    try {
+                        return write(temp, fileName, sequence, since);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            BackupFiles.moveAtomically(temp, dir.resolve(fileName));
+            return increment;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Escribe un backup de la cadena con los cambios posteriores a since
+     * Debe llamarse dentro de la transacción de la foto
+     *
+     * @param file     Fichero en el que se escribe el backup
+     * @param fileName Nombre definitivo del fichero del backup
+     * @param sequence Número del backup dentro de la cadena
+     * @param since    Marca del backup anterior o null si es el backup completo
+     * @return Backup escrito
+     */
+    private BackupIncrement write(Path file, String fileName, int sequence, LocalDateTime since)
+            throws SQLException, IOException {
+        LocalDateTime until = funkoRepository.currentTimestamp().minus(lag);
+        if (since != null && until.isBefore(since)) {
+            until = since;
+        }
+        List<String> deleted = since == null ? List.of() : funkoRepository.findDeletedSince(since, until);
+        long rows = 0;
+        try (Stream<Funko> funkos = since == null ? funkoRepository.streamAll()
+                : funkoRepository.streamChangedSince(since, until);
+             JsonWriter writer = new JsonWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            if (pretty) {
+                writer.setIndent("  ");
+            }
+            writer.beginObject();
+            writer.name("version").value(VERSION);
+            writer.name("sequence").value(sequence);
+            writer.name("since").value(since == null ? null : since.toString());
+            writer.name("until").value(until.toString());
+            writer.name("deleted").beginArray();
+            for (String cod : deleted) {
+                writer.value(cod);
+            }
+            writer.endArray();
+            writer.name("funkos").beginArray();
+            Iterator<Funko> iterator = funkos.iterator();
+            while (iterator.hasNext()) {
+                gson.toJson(iterator.next(), Funko.class, writer);
+                rows++;
+            }
+            writer.endArray();
+            writer.endObject();
+        } catch (JsonIOException e) {
+            throw e.getCause() instanceof IOException cause ? cause : new IOException(e);
+        }
+        return new BackupIncrement(sequence, fileName, since == null ? null : since.toString(), until.toString(),
+                rows, deleted.size());
+    }
+
+    /**
+     * Lee la cadena de backups del directorio y pasa cada backup al restaurador
+     * Los backups se aplican en orden: primero los borrados de cada uno y después sus Funkos. Antes de aplicar
+     * cada backup se comprueba que empieza en la marca del anterior, de modo que una cadena incompleta se
+     * detecta en el primer hueco
+     *
+     * @param dir      Directorio de la cadena de backups
+     * @param restorer Restaurador de los borrados y los Funkos de cada backup
+     * @return Número de Funkos borrados
+     */
+    public long read(Path dir, IncrementRestorer restorer) throws SQLException, IOException {
+        List<Path> chain = list(dir);
+        if (chain.isEmpty()) {
+            throw new IOException("No hay backups incrementales en " + dir);
+        }
+        long deleted = 0;
+        LocalDateTime previous = null;
+        for (int sequence = 0; sequence < chain.size(); sequence++) {
+            Path file = chain.get(sequence);
+            try (JsonReader reader = new JsonReader(Files.newBufferedReader(file, StandardCharsets.UTF_8))) {
+                reader.beginObject();
+                Header header = readHeader(reader);
+                if (header.sequence() != sequence || !Objects.equals(header.since(), previous)) {
+                    throw new IOException("El backup " + file.getFileName() + " no continúa la cadena");
+                }
+                expectName(reader, "deleted");
+                deleted += readDeleted(reader, restorer);
+                expectName(reader, "funkos");
+                restorer.restore(reader);
+                reader.endObject();
+                previous = header.until();
+            } catch (JsonParseException | IllegalStateException | DateTimeParseException e) {
+                throw new IOException("El backup " + file.getFileName() + " no es válido: " + e.getMessage(), e);
+            }
+        }
+        logger.debug("Leídos " + chain.size() + " backups incrementales de " + dir);
+        return deleted;
+    }
+
+    /**
+     * Devuelve los backups de un directorio ordenados por secuencia
+     *
+     * @param dir Directorio de la cadena de backups
+     * @return Ficheros de los backups
+     * @throws IOException Si falta algún backup de la secuencia
+     */
+    private static List<Path> list(Path dir) throws IOException {
+        List<Path> chain;
+        try (Stream<Path> files = Files.list(dir)) {
+            chain = files.filter(file -> FILE_PATTERN.matcher(file.getFileName().toString()).matches())
+                    .sorted()
+                    .toList();
+        }
+        for (int i = 0; i < chain.size(); i++) {
+            if (!chain.get(i).getFileName().toString().equals(String.format(FILE_FORMAT, i))) {
+                throw new IOException("Falta el backup incremental " + String.format(FILE_FORMAT, i));
+            }
+        }
+        return chain;
+    }
+
+    /**
+     * Lee la cabecera de un backup
+     *
+     * @param file Fichero del backup
+     * @return Cabecera del backup
+     */
+    private static Header readHeader(Path file) throws IOException {
+        try (JsonReader reader = new JsonReader(Files.newBufferedReader(file, StandardCharsets.UTF_8))) {
+            reader.beginObject();
+            return readHeader(reader);
+        } catch (JsonParseException | IllegalStateException | DateTimeParseException e) {
+            throw new IOException("El backup " + file.getFileName() + " no es válido: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Lee la cabecera de un backup
+     *
+     * @param reader Lector situado al principio del objeto del backup
+     * @return Cabecera del backup
+     */
+    private static Header readHeader(JsonReader reader) throws IOException {
+        expectName(reader, "version");
+        int version = reader.nextInt();
+        if (version != VERSION) {
+            throw new IOException("Versión del backup incremental " + version + " no soportada");
+        }
+        expectName(reader, "sequence");
+        int sequence = reader.nextInt();
+        expectName(reader, "since");
+        LocalDateTime since = null;
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+        } else {
+            since = LocalDateTime.parse(reader.nextString());
+        }
+        expectName(reader, "until");
+        return new Header(sequence, since, LocalDateTime.parse(reader.nextString()));
+    }
+
+    /**
+     * Lee el nombre del siguiente campo de un objeto JSON y comprueba que es el esperado
+     *
+     * @param reader Lector JSON
+     * @param name   Nombre esperado
+     * @throws IOException Si el campo es otro
+     */
+    private static void expectName(JsonReader reader, String name) throws IOException {
+        String actual = reader.nextName();
+        if (!actual.equals(name)) {
+            throw new IOException("Se esperaba el campo " + name + " y se ha encontrado " + actual);
+        }
+    }
+
+    /**
+     * Lee la lista de borrados de un backup y la pasa al restaurador por bloques
+     *
+     * @param reader   Lector situado al principio de la lista
+     * @param restorer Restaurador de los borrados
+     * @return Número de Funkos borrados
+     */
+    private long readDeleted(JsonReader reader, IncrementRestorer restorer) throws SQLException, IOException {
+        long deleted = 0;
+        List<String> chunk = new ArrayList<>(deleteChunkSize);
+        reader.beginArray();
+        while (reader.hasNext()) {
+            chunk.add(reader.nextString());
+            if (chunk.size() == deleteChunkSize) {
+                deleted += restorer.delete(chunk);
+                chunk.clear();
+            }
+        }
+        reader.endArray();
+        if (!chunk.isEmpty()) {
+            deleted += restorer.delete(chunk);
+        }
+        return deleted;
+    }
+
+    /**
+     * Restaurador de los backups de la cadena
+     */
+    public interface IncrementRestorer {
+        /**
+         * Borra un bloque de Funkos borrados en el intervalo del backup
+         *
+         * @param cods Cods de los Funkos a borrar
+         * @return Número de Funkos borrados
+         */
+        int delete(List<String> cods) throws SQLException;
+
+        /**
+         * Restaura los Funkos creados o modificados en el intervalo del backup, sustituyendo los que ya existen
+         *
+         * @param reader Lector situado al principio del array JSON de Funkos del backup
+         */
+        void restore(JsonReader reader) throws SQLException, IOException;
+    }
+
+    /**
+     * Cabecera de un backup
+     *
+     * @param sequence Número del backup dentro de la cadena
+     * @param since    Marca del backup anterior o null si es el backup completo
+     * @param until    Marca de este backup
+     */
+    private record Header(int sequence, LocalDateTime since, LocalDateTime until) {
+    }
+}
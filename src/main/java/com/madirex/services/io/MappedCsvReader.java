@@ -0,0 +1,154 @@
+package com.madirex.services.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Lector de archivos CSV mapeados en memoria
+ * Divide el archivo (sin la cabecera) en segmentos de tamaño aproximado que siempre terminan en un salto
+ * de línea, de modo que cada segmento se puede recorrer en paralelo sin copiar las líneas a objetos String
+ */
+public class MappedCsvReader implements Closeable {
+    private static final int SCAN_BUFFER_SIZE = 8192;
+    private final FileChannel channel;
+    private final long size;
+    private final int segmentBytes;
+    private final ByteBuffer scanBuffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+    private long position;
+
+    /**
+     * Constructor de la clase
+     * Abre el archivo y se sitúa tras la línea de cabecera
+     *
+     * @param path         ruta del archivo CSV
+     * @param segmentBytes tamaño aproximado de cada segmento en bytes
+     * @throws IOException Excepción al abrir el archivo
+     */
+    public MappedCsvReader(Path path, int segmentBytes) throws IOException {
+        if (segmentBytes < 1) {
+            throw new IllegalArgumentException("El tamaño de segmento debe ser mayor que 0");
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.segmentBytes = segmentBytes;
+        this.position = nextLineStart(0);
+    }
+
+    /**
+     * Mapea el siguiente segmento del archivo
+     * El segmento empieza al inicio de una línea y termina tras un salto de línea o al final del archivo
+     *
+     * @return segmento mapeado o null si no quedan más
+     * @throws IOException Excepción al leer el archivo
+     */
+    public Segment nextSegment() throws IOException {
+        if (position >= size) {
+            return null;
+        }
+        long start = position;
+        long end = Math.min(size, start + segmentBytes);
+        if (end < size) {
+            end = nextLineStart(end - 1);
+        }
+        if (end - start > Integer.MAX_VALUE) {
+            throw new IOException("Línea demasiado larga a partir de la posición " + start);
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        position = end;
+        return new Segment(start, buffer);
+    }
+
+    /**
+     * Cierra el archivo
+     * Los segmentos ya mapeados siguen siendo válidos hasta que se liberan
+     *
+     * @throws IOException Excepción al cerrar el archivo
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Recorre las líneas de un segmento, sin los saltos de línea (\n o \r\n)
+     *
+     * @param segment segmento a recorrer
+     * @param handler receptor de cada línea
+     * @return número de líneas recorridas
+     */
+    public static long forEachLine(Segment segment, LineHandler handler) {
+        ByteBuffer buffer = segment.buffer();
+        int limit = buffer.limit();
+        int lineStart = 0;
+        long lines = 0;
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int contentEnd = lineEnd;
+            if (contentEnd > lineStart && buffer.get(contentEnd - 1) == '\r') {
+                contentEnd--;
+            }
+            handler.line(buffer, lineStart, contentEnd - lineStart, segment.position() + lineStart);
+            lines++;
+            lineStart = lineEnd + 1;
+        }
+        return lines;
+    }
+
+    /**
+     * Busca la posición siguiente al primer salto de línea a partir de una posición del archivo
+     *
+     * @param from posición desde la que buscar
+     * @return posición del inicio de la siguiente línea o el tamaño del archivo si no hay más saltos
+     * @throws IOException Excepción al leer el archivo
+     */
+    private long nextLineStart(long from) throws IOException {
+        long offset = from;
+        while (offset < size) {
+            scanBuffer.clear();
+            int read = channel.read(scanBuffer, offset);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (scanBuffer.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+        return size;
+    }
+
+    /**
+     * Receptor de las líneas de un segmento
+     */
+    @FunctionalInterface
+    public interface LineHandler {
+        /**
+         * Procesa una línea del segmento
+         *
+         * @param buffer   buffer del segmento
+         * @param offset   posición de la línea dentro del buffer
+         * @param length   número de bytes de la línea
+         * @param position posición de la línea en el archivo
+         */
+        void line(ByteBuffer buffer, int offset, int length, long position);
+    }
+
+    /**
+     * Segmento del archivo mapeado en memoria
+     *
+     * @param position posición del segmento en el archivo
+     * @param buffer   contenido del segmento
+     */
+    public record Segment(long position, ByteBuffer buffer) {
+    }
+}
@@ -14,7 +14,10 @@ public class FunkoValidator {
      * @throws FunkoNotValidException Excepción al validar el Funko
      */
     public static void validate(Funko funko) throws FunkoNotValidException {
-        if (funko.getName().isEmpty()) {
+        if (funko.getCod() == null) {
+            throw new FunkoNotValidException("Tiene que tener un código");
+        }
+        if (funko.getName() == null || funko.getName().isEmpty()) {
             throw new FunkoNotValidException("El nombre no puede estar vacío");
         }
         if (funko.getPrice() < 0) {
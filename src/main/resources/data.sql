@@ -1,12 +1,21 @@
 DROP TABLE funko IF EXISTS;
+DROP TABLE funko_tombstone IF EXISTS;
 CREATE TABLE IF NOT EXISTS funko (
                          id BIGINT PRIMARY KEY AUTO_INCREMENT,
                          cod UUID DEFAULT RANDOM_UUID() NOT NULL,
-                         nombre VARCHAR(255),
+                         nombre VARCHAR_IGNORECASE(255),
                          modelo VARCHAR(6) CHECK (modelo IN ('MARVEL', 'DISNEY', 'ANIME', 'OTROS')),
                          precio DECIMAL(10, 2),
                          fecha_lanzamiento DATE,
                          created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
                          updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
-
+CREATE INDEX IF NOT EXISTS idx_funko_nombre ON funko (nombre);
+CREATE UNIQUE INDEX IF NOT EXISTS idx_funko_cod ON funko (cod);
+CREATE INDEX IF NOT EXISTS idx_funko_fecha_lanzamiento ON funko (fecha_lanzamiento);
+CREATE INDEX IF NOT EXISTS idx_funko_updated_at ON funko (updated_at);
+CREATE TABLE IF NOT EXISTS funko_tombstone (
+                         cod UUID PRIMARY KEY,
+                         deleted_at TIMESTAMP NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_funko_tombstone_deleted_at ON funko_tombstone (deleted_at);
@@ -0,0 +1,3 @@
+-- Búsqueda por nombre sin distinguir mayúsculas con índice
+ALTER TABLE funko ALTER COLUMN nombre SET DATA TYPE VARCHAR_IGNORECASE(255);
+CREATE INDEX IF NOT EXISTS idx_funko_nombre ON funko (nombre);
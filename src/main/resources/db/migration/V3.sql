@@ -0,0 +1,2 @@
+-- Índice único sobre cod, por el que se hacen todas las búsquedas puntuales
+CREATE UNIQUE INDEX IF NOT EXISTS idx_funko_cod ON funko (cod);
@@ -0,0 +1,2 @@
+-- Índice sobre la fecha de lanzamiento para las consultas por año
+CREATE INDEX IF NOT EXISTS idx_funko_fecha_lanzamiento ON funko (fecha_lanzamiento);
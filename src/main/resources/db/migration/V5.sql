@@ -0,0 +1,7 @@
+-- Registro de borrados e índice sobre updated_at para los backups incrementales
+CREATE TABLE IF NOT EXISTS funko_tombstone (
+                         cod UUID PRIMARY KEY,
+                         deleted_at TIMESTAMP NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_funko_tombstone_deleted_at ON funko_tombstone (deleted_at);
+CREATE INDEX IF NOT EXISTS idx_funko_updated_at ON funko (updated_at);
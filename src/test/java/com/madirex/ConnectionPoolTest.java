@@ -0,0 +1,116 @@
+package com.madirex;
+
+import com.madirex.services.database.ConnectionPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de testeo para la clase ConnectionPool
+ */
+class ConnectionPoolTest {
+
+    private ConnectionPool pool;
+
+    /**
+     * Método que se ejecuta antes de cada test
+     *
+     * @throws SQLException Si no se puede crear el pool
+     */
+    @BeforeEach
+    void setUp() throws SQLException {
+        pool = new ConnectionPool("jdbc:h2:mem:pooltest", "sa", "", 1, 2, 200, 60000);
+    }
+
+    /**
+     * Método que se ejecuta después de cada test
+     */
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    /**
+     * Test para comprobar que se abren las conexiones mínimas al crear el pool
+     */
+    @Test
+    void testMinConnectionsOpened() {
+        assertAll(() -> assertEquals(1, pool.getOpenConnections()),
+                () -> assertEquals(1, pool.getIdleConnections())
+        );
+    }
+
+    /**
+     * Test para comprobar que una conexión devuelta se reutiliza
+     *
+     * @throws SQLException Si hay un error en la base de datos
+     */
+    @Test
+    void testReleasedConnectionIsReused() throws SQLException {
+        Connection first = pool.borrow();
+        pool.release(first);
+        Connection second = pool.borrow();
+        assertSame(first, second);
+        pool.release(second);
+        assertEquals(1, pool.getOpenConnections());
+    }
+
+    /**
+     * Test para comprobar que no se superan las conexiones máximas y se respeta el tiempo de espera
+     *
+     * @throws SQLException Si hay un error en la base de datos
+     */
+    @Test
+    void testAcquireTimeoutWhenExhausted() throws SQLException {
+        Connection first = pool.borrow();
+        Connection second = pool.borrow();
+        assertThrows(SQLTimeoutException.class, () -> pool.borrow());
+        assertEquals(2, pool.getOpenConnections());
+        pool.release(first);
+        pool.release(second);
+    }
+
+    /**
+     * Test para comprobar que una conexión cerrada se descarta y se sustituye por otra válida
+     *
+     * @throws SQLException Si hay un error en la base de datos
+     */
+    @Test
+    void testInvalidConnectionIsDiscarded() throws SQLException {
+        Connection first = pool.borrow();
+        pool.release(first);
+        first.close();
+        Connection second = pool.borrow();
+        assertAll(() -> assertNotSame(first, second),
+                () -> assertTrue(second.isValid(1))
+        );
+        pool.release(second);
+    }
+
+    /**
+     * Test para comprobar que devolver dos veces la misma conexión no deja más conexiones de las permitidas
+     *
+     * @throws SQLException Si hay un error en la base de datos
+     */
+    @Test
+    void testDoubleReleaseIsIgnored() throws SQLException {
+        Connection first = pool.borrow();
+        pool.release(first);
+        pool.release(first);
+        Connection second = pool.borrow();
+        Connection third = pool.borrow();
+        assertAll(() -> assertThrows(SQLTimeoutException.class, () -> pool.borrow()),
+                () -> assertNotSame(second, third),
+                () -> assertEquals(2, pool.getOpenConnections())
+        );
+        pool.release(second);
+        pool.release(third);
+        assertEquals(2, pool.getIdleConnections());
+    }
+}
@@ -0,0 +1,104 @@
+package com.madirex;
+
+import com.madirex.exceptions.ReadCSVFailException;
+import com.madirex.models.Funko;
+import com.madirex.models.Model;
+import com.madirex.services.io.CsvManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de testeo para la clase CsvManager
+ */
+class CsvManagerTest {
+
+    private static final String HEADER = "COD,NOMBRE,MODELO,PRECIO,FECHA_LANZAMIENTO";
+
+    @TempDir
+    Path tempDir;
+
+    private Path csv;
+
+    /**
+     * Método que se ejecuta antes de cada test
+     *
+     * @throws IOException Si no se puede escribir el archivo
+     */
+    @BeforeEach
+    void setUp() throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(HEADER);
+        for (int i = 0; i < 7; i++) {
+            lines.add(String.format("3b6c6f58-79b9-434b-82ab-01a2d6e4434%d,Funko %d,MARVEL,1%d.99,2022-05-0%d",
+                    i, i, i, i + 1));
+        }
+        csv = tempDir.resolve("funkos.csv");
+        Files.write(csv, lines);
+    }
+
+    /**
+     * Test para comprobar que se lee el archivo completo
+     *
+     * @throws ReadCSVFailException Si no se puede leer el archivo
+     */
+    @Test
+    void testFileToFunkoList() throws ReadCSVFailException {
+        List<Funko> funkos = CsvManager.getInstance().fileToFunkoList(csv.toString()).orElseThrow();
+        Funko first = funkos.get(0);
+        assertAll(() -> assertEquals(7, funkos.size()),
+                () -> assertEquals(UUID.fromString("3b6c6f58-79b9-434b-82ab-01a2d6e44340"), first.getCod()),
+                () -> assertEquals("Funko 0", first.getName()),
+                () -> assertEquals(Model.MARVEL, first.getModel()),
+                () -> assertEquals(10.99, first.getPrice()),
+                () -> assertEquals(LocalDate.of(2022, 5, 1), first.getReleaseDate())
+        );
+    }
+
+    /**
+     * Test para comprobar que el Stream lee las líneas bajo demanda
+     *
+     * @throws ReadCSVFailException Si no se puede leer el archivo
+     */
+    @Test
+    void testStreamFunkos() throws ReadCSVFailException {
+        try (Stream<Funko> funkos = CsvManager.getInstance().streamFunkos(csv.toString())) {
+            assertEquals("Funko 6", funkos.reduce((a, b) -> b).orElseThrow().getName());
+        }
+    }
+
+    /**
+     * Test para comprobar que los bloques no superan el tamaño indicado
+     *
+     * @throws ReadCSVFailException Si no se puede leer el archivo
+     */
+    @Test
+    void testReadFunkosInChunks() throws ReadCSVFailException {
+        List<Integer> sizes = new ArrayList<>();
+        long total = CsvManager.getInstance().readFunkosInChunks(csv.toString(), 3, chunk -> sizes.add(chunk.size()));
+        assertAll(() -> assertEquals(7, total),
+                () -> assertEquals(List.of(3, 3, 1), sizes)
+        );
+    }
+
+    /**
+     * Test para comprobar que se lanza la excepción si el archivo no existe
+     */
+    @Test
+    void testFileNotExists() {
+        assertThrows(ReadCSVFailException.class,
+                () -> CsvManager.getInstance().readFunkosInChunks("no/existe.csv", 3, chunk -> {
+                }));
+    }
+}
@@ -0,0 +1,323 @@
+package com.madirex;
+
+import com.madirex.models.Funko;
+import com.madirex.models.Model;
+import com.madirex.repositories.funko.FunkoRepository;
+import com.madirex.repositories.funko.FunkoRepositoryImpl;
+import com.madirex.services.crud.funko.FunkoServiceImpl;
+import com.madirex.services.database.DatabaseManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de testeo de la coherencia entre la caché de FunkoService y la base de datos
+ */
+class FunkoCacheConsistencyTestDB {
+
+    private static final int FUNKOS = 20;
+    private FunkoRepository funkoRepository;
+    private FunkoServiceImpl funkoService;
+
+    /**
+     * Método que se ejecuta antes de cada test
+     *
+     * @throws SQLException Si hay un error en la base de datos
+     */
+    @BeforeEach
+    void setUp() throws SQLException {
+        funkoRepository = FunkoRepositoryImpl.getInstance(DatabaseManager.getInstance());
+        funkoService = new FunkoServiceImpl(funkoRepository);
+        deleteAll();
+    }
+
+    /**
+     * Método que se ejecuta después de cada test
+     *
+     * @throws SQLException Si hay un error en la base de datos
+     */
+    @AfterEach
+    void tearDown() throws SQLException {
+        funkoService.close();
+        deleteAll();
+    }
+
+    /**
+     * Elimina todos los Funkos de la base de datos
+     *
+     * @throws SQLException Si hay un error en la base de datos
+     */
+    private void deleteAll() throws SQLException {
+        funkoRepository.findAll().forEach(e -> {
+            try {
+                funkoRepository.delete(e.getCod().toString());
+            } catch (SQLException ex) {
+                throw new RuntimeException(ex);
+            }
+        });
+    }
+
+    /**
+     * Crea un Funko de prueba
+     *
+     * @param name  Nombre del Funko
+     * @param price Precio del Funko
+     * @return Funko creado
+     */
+    private Funko funko(String name, double price) {
+        return Funko.builder().name(name).model(Model.OTROS).price(price)
+                .releaseDate(LocalDate.of(2023, 1, 1)).build();
+    }
+
+    /**
+     * Ejecuta las tareas a la vez, soltándolas juntas, y espera a que terminen todas
+     *
+     * @param tasks Tareas a ejecutar
+     * @throws Exception Si falla alguna tarea
+     */
+    @SafeVarargs
+    private void runConcurrently(Callable<Void>... tasks) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(tasks.length);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (Callable<Void> task : tasks) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Crea una tarea que lee los ids indicados desde la caché mientras writing sea true
+     *
+     * @param writing ¿Sigue en curso la escritura?
+     * @param ids     Ids a leer
+     * @return Tarea de lectura
+     */
+    private Callable<Void> reader(AtomicBoolean writing, List<String> ids) {
+        return () -> {
+            do {
+                funkoService.findAllById(ids);
+                for (String id : ids) {
+                    funkoService.findById(id);
+                }
+            } while (writing.get());
+            return null;
+        };
+    }
+
+    /**
+     * Test para comprobar que, tras lecturas, actualizaciones y borrados concurrentes, la caché devuelve
+     * lo mismo que la base de datos para cada Funko
+     *
+     * @throws Exception Si falla algún hilo
+     */
+    @Test
+    void testConcurrentReadsAndWrites() throws Exception {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < FUNKOS; i++) {
+            Funko funko = Funko.builder().name("Funko " + i).model(Model.OTROS).price(10.0)
+                    .releaseDate(LocalDate.of(2023, 1, 1)).build();
+            funkoRepository.save(funko);
+            ids.add(funko.getCod().toString());
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 500; i++) {
+                    funkoService.findById(ids.get(ThreadLocalRandom.current().nextInt(FUNKOS)));
+                }
+                return null;
+            }));
+        }
+        futures.add(executor.submit(() -> {
+            for (int i = 0; i < 200; i++) {
+                int index = ThreadLocalRandom.current().nextInt(FUNKOS);
+                Funko funko = Funko.builder().name("Funko " + index).model(Model.OTROS)
+                        .price(ThreadLocalRandom.current().nextInt(1, 10_000) / 100.0)
+                        .releaseDate(LocalDate.of(2023, 1, 1)).build();
+                funkoService.update(ids.get(index), funko);
+            }
+            return null;
+        }));
+        futures.add(executor.submit(() -> {
+            for (int i = 0; i < FUNKOS; i += 4) {
+                funkoService.delete(ids.get(i));
+                Thread.sleep(5);
+            }
+            return null;
+        }));
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        for (String id : ids) {
+            Optional<Funko> cached = funkoService.findById(id);
+            Optional<Funko> stored = funkoRepository.findById(id);
+            assertEquals(stored.isPresent(), cached.isPresent(), "Presencia distinta para " + id);
+            stored.ifPresent(funko -> assertEquals(funko.getPrice(), cached.orElseThrow().getPrice(),
+                    "Precio distinto para " + id));
+        }
+    }
+
+    /**
+     * Test para comprobar que un borrado que compite con lecturas del mismo id no deja el Funko borrado en la
+     * caché
+     *
+     * @throws Exception Si falla algún hilo
+     */
+    @Test
+    void testDeleteRacingFindById() throws Exception {
+        for (int round = 0; round < 50; round++) {
+            Funko funko = funko("Funko " + round, 10.0);
+            funkoService.save(funko);
+            String id = funko.getCod().toString();
+            assertTrue(funkoService.findById(id).isPresent());
+            AtomicBoolean writing = new AtomicBoolean(true);
+            runConcurrently(reader(writing, List.of(id)), reader(writing, List.of(id)), () -> {
+                try {
+                    funkoService.delete(id);
+                } finally {
+                    writing.set(false);
+                }
+                return null;
+            });
+            assertTrue(funkoService.findById(id).isEmpty(), "Funko borrado en caché en la ronda " + round);
+            assertTrue(funkoService.findAllById(List.of(id)).isEmpty());
+        }
+    }
+
+    /**
+     * Test para comprobar que actualizar un Funko con datos que traen otro cod invalida la entrada del id
+     * actualizado y no añade a la caché el cod de los datos nuevos
+     *
+     * @throws Exception Si falla algún hilo
+     */
+    @Test
+    void testUpdateWithDifferentCod() throws Exception {
+        Funko funko = funko("Funko", 10.0);
+        funkoService.save(funko);
+        String id = funko.getCod().toString();
+        assertTrue(funkoService.findById(id).isPresent());
+        List<String> otherCods = new ArrayList<>();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        runConcurrently(reader(writing, List.of(id)), reader(writing, List.of(id)), () -> {
+            try {
+                for (int i = 1; i <= 100; i++) {
+                    Funko newFunko = funko("Funko " + i, 10.0 + i);
+                    otherCods.add(newFunko.getCod().toString());
+                    funkoService.update(id, newFunko);
+                }
+            } finally {
+                writing.set(false);
+            }
+            return null;
+        });
+        Funko cached = funkoService.findById(id).orElseThrow();
+        Funko stored = funkoRepository.findById(id).orElseThrow();
+        assertEquals(funko.getCod(), cached.getCod());
+        assertEquals(stored.getName(), cached.getName());
+        assertEquals(stored.getPrice(), cached.getPrice());
+        assertEquals(110.0, cached.getPrice());
+        for (String otherCod : otherCods) {
+            assertTrue(funkoService.findById(otherCod).isEmpty(), "Cod de los datos nuevos en caché: " + otherCod);
+        }
+    }
+
+    /**
+     * Test para comprobar que saveAll y deleteAll invalidan los ids que se están leyendo a la vez: los
+     * guardados dejan de estar en la caché negativa y los borrados dejan de estar en la caché
+     *
+     * @throws Exception Si falla algún hilo
+     */
+    @Test
+    void testSaveAllAndDeleteAllAgainstCachedIds() throws Exception {
+        List<Funko> funkos = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < FUNKOS; i++) {
+            Funko funko = funko("Funko " + i, 10.0 + i);
+            funkos.add(funko);
+            ids.add(funko.getCod().toString());
+        }
+        assertTrue(funkoService.findAllById(ids).isEmpty());
+        AtomicBoolean saving = new AtomicBoolean(true);
+        runConcurrently(reader(saving, ids), reader(saving, ids), () -> {
+            try {
+                assertEquals(FUNKOS, funkoService.saveAll(funkos).getSaved().size());
+            } finally {
+                saving.set(false);
+            }
+            return null;
+        });
+        assertEquals(ids, new ArrayList<>(funkoService.findAllById(ids).keySet()));
+        for (String id : ids) {
+            assertTrue(funkoService.findById(id).isPresent(), "Funko guardado no encontrado: " + id);
+        }
+        AtomicBoolean deleting = new AtomicBoolean(true);
+        runConcurrently(reader(deleting, ids), reader(deleting, ids), () -> {
+            try {
+                assertEquals(FUNKOS, funkoService.deleteAll(ids));
+            } finally {
+                deleting.set(false);
+            }
+            return null;
+        });
+        assertTrue(funkoService.findAllById(ids).isEmpty());
+        for (String id : ids) {
+            assertTrue(funkoService.findById(id).isEmpty(), "Funko borrado en caché: " + id);
+        }
+    }
+
+    /**
+     * Test para comprobar que un id anotado en la caché negativa se encuentra en cuanto se inserta, aunque
+     * haya lecturas del mismo id en curso
+     *
+     * @throws Exception Si falla algún hilo
+     */
+    @Test
+    void testNegativeCacheAfterInsert() throws Exception {
+        for (int round = 0; round < 50; round++) {
+            Funko funko = funko("Funko " + round, 10.0);
+            String id = funko.getCod().toString();
+            assertTrue(funkoService.findById(id).isEmpty());
+            AtomicBoolean writing = new AtomicBoolean(true);
+            runConcurrently(reader(writing, List.of(id)), reader(writing, List.of(id)), () -> {
+                try {
+                    funkoService.save(funko);
+                } finally {
+                    writing.set(false);
+                }
+                return null;
+            });
+            assertTrue(funkoService.findById(id).isPresent(), "Funko insertado no encontrado en la ronda " + round);
+            assertEquals(List.of(id), new ArrayList<>(funkoService.findAllById(List.of(id)).keySet()));
+        }
+        assertTrue(funkoService.findById(UUID.randomUUID().toString()).isEmpty());
+    }
+}
@@ -0,0 +1,111 @@
+package com.madirex;
+
+import com.madirex.models.Funko;
+import com.madirex.models.Model;
+import com.madirex.services.io.FunkoCsvParser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de testeo para la clase FunkoCsvParser
+ */
+class FunkoCsvParserTest {
+
+    private final List<FunkoCsvParser.RowError> errors = new ArrayList<>();
+    private FunkoCsvParser parser;
+
+    /**
+     * Método que se ejecuta antes de cada test
+     */
+    @BeforeEach
+    void setUp() {
+        errors.clear();
+        parser = new FunkoCsvParser(errors::add);
+    }
+
+    /**
+     * Test para comprobar una fila correcta
+     */
+    @Test
+    void testParseRow() {
+        Funko funko = parser.parse("3b6c6f58-79b9-434b-82ab-01a2d6e4434a,Spiderman Delight,MARVEL,15.99,2022-05-01", 2);
+        assertAll(() -> assertEquals(UUID.fromString("3b6c6f58-79b9-434b-82ab-01a2d6e4434a"), funko.getCod()),
+                () -> assertEquals("Spiderman Delight", funko.getName()),
+                () -> assertEquals(Model.MARVEL, funko.getModel()),
+                () -> assertEquals(15.99, funko.getPrice()),
+                () -> assertEquals(LocalDate.of(2022, 5, 1), funko.getReleaseDate()),
+                () -> assertTrue(errors.isEmpty())
+        );
+    }
+
+    /**
+     * Test para comprobar que los UUID se leen igual que con UUID.fromString, incluidos los que no
+     * tienen 36 caracteres
+     */
+    @Test
+    void testUuidMatchesFromString() {
+        String longer = "f8f7ae42-5b01-4d3b-82ab-2d1a2d6e4434a";
+        String shorter = "3b6c6f58-7c6b-434b-82ab-01b2d6e443a";
+        String upper = "3B6C6F58-79B9-434B-82AB-01A2D6E4434A";
+        assertAll(() -> assertEquals(UUID.fromString(longer.substring(0, 36)),
+                        parser.parse(longer + ",a,ANIME,1,2022-01-01", 2).getCod()),
+                () -> assertEquals(UUID.fromString(shorter),
+                        parser.parse(shorter + ",a,ANIME,1,2022-01-01", 3).getCod()),
+                () -> assertEquals(UUID.fromString(upper),
+                        parser.parse(upper + ",a,ANIME,1,2022-01-01", 4).getCod())
+        );
+    }
+
+    /**
+     * Test para comprobar los campos entre comillas, con comas y comillas escapadas
+     */
+    @Test
+    void testQuotedFields() {
+        Funko funko = parser.parse("3b6c6f58-79b9-434b-82ab-01a2d6e4434a,\"Stitch, \"\"Hula\"\"\",\"DISNEY\",25.99,2023-01-01", 2);
+        assertAll(() -> assertEquals("Stitch, \"Hula\"", funko.getName()),
+                () -> assertEquals(Model.DISNEY, funko.getModel()),
+                () -> assertTrue(errors.isEmpty())
+        );
+    }
+
+    /**
+     * Test para comprobar que los precios coinciden con Double.parseDouble
+     */
+    @Test
+    void testPriceMatchesParseDouble() {
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            String price = random.nextInt(100000) + "." + random.nextInt(100);
+            Funko funko = parser.parse("3b6c6f58-79b9-434b-82ab-01a2d6e4434a,a,ANIME," + price + ",2022-01-01", i);
+            assertEquals(Double.parseDouble(price), funko.getPrice(), price);
+        }
+        assertEquals(-1.5e3, parser.parse("3b6c6f58-79b9-434b-82ab-01a2d6e4434a,a,ANIME,-1.5e3,2022-01-01", 1).getPrice());
+    }
+
+    /**
+     * Test para comprobar que las filas mal formadas se notifican y no detienen la lectura
+     */
+    @Test
+    void testMalformedRowsAreReported() {
+        assertAll(() -> assertNull(parser.parse("not-a-uuid,a,ANIME,1,2022-01-01", 2)),
+                () -> assertNull(parser.parse("3b6c6f58-79b9-434b-82ab-01a2d6e4434a,a,ROBOT,1,2022-01-01", 3)),
+                () -> assertNull(parser.parse("3b6c6f58-79b9-434b-82ab-01a2d6e4434a,a,ANIME,1,2022-13-01", 4)),
+                () -> assertNull(parser.parse("3b6c6f58-79b9-434b-82ab-01a2d6e4434a,a,ANIME,abc,2022-01-01", 5)),
+                () -> assertNull(parser.parse("3b6c6f58-79b9-434b-82ab-01a2d6e4434a,a,ANIME,1", 6)),
+                () -> assertNull(parser.parse("3b6c6f58-79b9-434b-82ab-01a2d6e4434a,\"a,ANIME,1,2022-01-01", 7)),
+                () -> assertNull(parser.parse("", 8))
+        );
+        assertAll(() -> assertEquals(6, errors.size()),
+                () -> assertEquals(2, errors.get(0).lineNumber()),
+                () -> assertEquals(7, errors.get(5).lineNumber())
+        );
+    }
+}
@@ -0,0 +1,140 @@
+package com.madirex;
+
+import com.madirex.exceptions.ReadCSVFailException;
+import com.madirex.models.BatchResult;
+import com.madirex.models.Funko;
+import com.madirex.services.crud.funko.FunkoService;
+import com.madirex.services.io.FunkoImportPipeline;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Clase de testeo para la clase FunkoImportPipeline
+ */
+@ExtendWith(MockitoExtension.class)
+class FunkoImportPipelineTest {
+
+    @Mock
+    FunkoService service;
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Test para comprobar que todas las filas se procesan y se cuentan en paralelo
+     *
+     * @throws IOException          Si no se puede escribir el archivo
+     * @throws SQLException         Si hay un error en la base de datos
+     * @throws ReadCSVFailException Si no se puede leer el archivo
+     */
+    @Test
+    void testImportCountsRows() throws IOException, SQLException, ReadCSVFailException {
+        List<String> lines = new ArrayList<>();
+        lines.add("COD,NOMBRE,MODELO,PRECIO,FECHA_LANZAMIENTO");
+        for (int i = 0; i < 2500; i++) {
+            lines.add(UUID.randomUUID() + ",Funko " + i + ",ANIME,9.99,2023-01-01");
+        }
+        lines.add("roto,Funko,ANIME,9.99,2023-01-01");
+        lines.add(UUID.randomUUID() + ",Caro,ANIME,-1,2023-01-01");
+        Path csv = tempDir.resolve("funkos.csv");
+        Files.write(csv, lines);
+        when(service.saveAll(any())).thenAnswer(invocation -> {
+            Collection<Funko> funkos = invocation.getArgument(0);
+            BatchResult<Funko> result = new BatchResult<>();
+            funkos.forEach(result::addSaved);
+            return result;
+        });
+        FunkoImportPipeline pipeline = new FunkoImportPipeline(service, 3, 2, 2, 100, 4096);
+        FunkoImportPipeline.ImportReport report = pipeline.run(csv.toString());
+        assertAll(() -> assertEquals(2502, report.read()),
+                () -> assertEquals(2500, report.saved()),
+                () -> assertEquals(2, report.invalid()),
+                () -> assertEquals(0, report.failed()),
+                () -> assertTrue(report.segmentQueue().maxDepth() <= 2),
+                () -> assertTrue(report.funkoQueue().maxDepth() <= 2)
+        );
+    }
+
+    /**
+     * Test para comprobar que los segmentos mapeados respetan los saltos de línea CRLF y los nombres UTF-8
+     *
+     * @throws IOException          Si no se puede escribir el archivo
+     * @throws SQLException         Si hay un error en la base de datos
+     * @throws ReadCSVFailException Si no se puede leer el archivo
+     */
+    @Test
+    void testImportMappedUtf8AndCrlf() throws IOException, SQLException, ReadCSVFailException {
+        StringBuilder content = new StringBuilder("COD,NOMBRE,MODELO,PRECIO,FECHA_LANZAMIENTO\r\n");
+        for (int i = 0; i < 500; i++) {
+            content.append(UUID.randomUUID()).append(",\"Pokémon Ñu, ").append(i).append("\",ANIME,9.99,2023-01-01\r\n");
+        }
+        Path csv = tempDir.resolve("funkos_crlf.csv");
+        Files.writeString(csv, content, StandardCharsets.UTF_8);
+        List<Funko> saved = Collections.synchronizedList(new ArrayList<>());
+        when(service.saveAll(any())).thenAnswer(invocation -> {
+            Collection<Funko> funkos = invocation.getArgument(0);
+            saved.addAll(funkos);
+            BatchResult<Funko> result = new BatchResult<>();
+            funkos.forEach(result::addSaved);
+            return result;
+        });
+        FunkoImportPipeline pipeline = new FunkoImportPipeline(service, 2, 1, 2, 64, 1000);
+        FunkoImportPipeline.ImportReport report = pipeline.run(csv.toString());
+        assertAll(() -> assertEquals(500, report.read()),
+                () -> assertEquals(500, report.saved()),
+                () -> assertEquals(0, report.invalid()),
+                () -> assertTrue(saved.stream().allMatch(f -> f.getName().startsWith("Pokémon Ñu, "))),
+                () -> assertEquals(500, saved.stream().map(Funko::getName).distinct().count())
+        );
+    }
+
+    /**
+     * Test para comprobar que se lanza la excepción si el archivo no existe
+     */
+    @Test
+    void testFileNotExists() {
+        FunkoImportPipeline pipeline = new FunkoImportPipeline(service, 2, 1, 2, 100, 4096);
+        assertThrows(ReadCSVFailException.class, () -> pipeline.run("no/existe.csv"));
+    }
+
+    /**
+     * Test para comprobar que la importación termina con un error, en lugar de quedarse bloqueada, cuando
+     * fallan todos los escritores y con ellos los trabajadores de conversión
+     *
+     * @throws IOException  Si no se puede escribir el archivo
+     * @throws SQLException Si hay un error en la base de datos
+     */
+    @Test
+    void testImportFailsWhenStagesFail() throws IOException, SQLException {
+        List<String> lines = new ArrayList<>();
+        lines.add("COD,NOMBRE,MODELO,PRECIO,FECHA_LANZAMIENTO");
+        for (int i = 0; i < 5000; i++) {
+            lines.add(UUID.randomUUID() + ",Funko " + i + ",ANIME,9.99,2023-01-01");
+        }
+        Path csv = tempDir.resolve("funkos.csv");
+        Files.write(csv, lines);
+        when(service.saveAll(any())).thenThrow(new AssertionError("Error al guardar"));
+        FunkoImportPipeline pipeline = new FunkoImportPipeline(service, 2, 2, 1, 10, 1024);
+        assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> assertThrows(IllegalStateException.class, () -> pipeline.run(csv.toString())));
+    }
+}
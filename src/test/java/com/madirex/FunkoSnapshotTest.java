@@ -0,0 +1,114 @@
+package com.madirex;
+
+import com.madirex.models.Funko;
+import com.madirex.models.Model;
+import com.madirex.services.io.FunkoSnapshotReader;
+import com.madirex.services.io.FunkoSnapshotWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de testeo para las clases FunkoSnapshotWriter y FunkoSnapshotReader
+ */
+class FunkoSnapshotTest {
+
+    /**
+     * Escribe un snapshot con los Funkos indicados
+     *
+     * @param file   archivo del snapshot
+     * @param funkos Funkos a escribir
+     * @throws IOException Si hay un error al escribir
+     */
+    private void write(Path file, List<Funko> funkos) throws IOException {
+        try (FunkoSnapshotWriter writer = new FunkoSnapshotWriter(file)) {
+            for (Funko funko : funkos) {
+                writer.write(funko);
+            }
+            assertEquals(funkos.size(), writer.finish());
+        }
+    }
+
+    /**
+     * Lee todos los Funkos de un snapshot
+     *
+     * @param file archivo del snapshot
+     * @return Funkos leídos
+     * @throws IOException Si hay un error al leer o el snapshot está dañado
+     */
+    private List<Funko> read(Path file) throws IOException {
+        List<Funko> funkos = new ArrayList<>();
+        try (FunkoSnapshotReader reader = new FunkoSnapshotReader(file)) {
+            Funko funko;
+            while ((funko = reader.read()) != null) {
+                funkos.add(funko);
+            }
+        }
+        return funkos;
+    }
+
+    /**
+     * Test para comprobar que los Funkos se leen igual que se escribieron, incluidos los campos nulos, los
+     * nombres con caracteres no ASCII y los registros que ocupan más que el buffer
+     *
+     * @param directory Directorio temporal del test
+     * @throws IOException Si hay un error al escribir o leer el snapshot
+     */
+    @Test
+    void testRoundTrip(@TempDir Path directory) throws IOException {
+        List<Funko> funkos = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            funkos.add(Funko.builder().name("Funko ñ " + i).model(Model.values()[i % Model.values().length])
+                    .price(i / 100.0).releaseDate(LocalDate.of(2023, 1, 1).plusDays(i)).build());
+        }
+        funkos.add(Funko.builder().build());
+        char[] longName = new char[100_000];
+        Arrays.fill(longName, 'á');
+        funkos.add(Funko.builder().name(new String(longName)).model(Model.OTROS).price(42.24).build());
+        Path file = directory.resolve("funkos.snap");
+        write(file, funkos);
+        assertEquals(funkos, read(file));
+        write(file, List.of());
+        assertEquals(List.of(), read(file));
+    }
+
+    /**
+     * Test para comprobar que un snapshot truncado, dañado o de otro formato no se lee
+     *
+     * @param directory Directorio temporal del test
+     * @throws IOException Si hay un error al escribir el snapshot
+     */
+    @Test
+    void testCorruptSnapshot(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("funkos.snap");
+        write(file, List.of(
+                Funko.builder().name("test1").price(42.0).releaseDate(LocalDate.of(2023, 1, 1)).model(Model.DISNEY).build(),
+                Funko.builder().name("test2").price(42.24).releaseDate(LocalDate.of(2023, 2, 1)).model(Model.MARVEL).build()
+        ));
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 5));
+        assertThrows(IOException.class, () -> read(file));
+        byte[] corrupt = bytes.clone();
+        corrupt[20] ^= 1;
+        Files.write(file, corrupt);
+        assertThrows(IOException.class, () -> read(file));
+        for (int length : new int[]{1_000_000_000, (1 << 30) + 1, Integer.MAX_VALUE}) {
+            corrupt = bytes.clone();
+            ByteBuffer.wrap(corrupt).putInt(40, length);
+            Files.write(file, corrupt);
+            assertThrows(IOException.class, () -> read(file), "Longitud de nombre " + length);
+        }
+        Files.writeString(file, "[{\"cod\": \"3b6c6f58-79b9-434b-82ab-01a2d6e4434a\"}]");
+        assertThrows(IOException.class, () -> read(file));
+    }
+}
@@ -1,7 +1,9 @@
 package com.madirex;
 
+import com.madirex.models.BatchResult;
 import com.madirex.models.Funko;
 import com.madirex.models.Model;
+import com.madirex.models.Page;
 import com.madirex.repositories.funko.FunkoRepository;
 import com.madirex.repositories.funko.FunkoRepositoryImpl;
 import com.madirex.services.database.DatabaseManager;
@@ -11,8 +13,15 @@ import org.junit.jupiter.api.Test;
 
 import java.sql.SQLException;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -161,6 +170,133 @@ class FunkosRepositoryTestDB {
         );
     }
 
+    /**
+     * Test para comprobar que la búsqueda por nombre no distingue mayúsculas y trata % y _ de forma literal
+     *
+     * @throws SQLException Si hay un error en la base de datos
+     */
+    @Test
+    void testFindByNameIgnoresCaseAndEscapesWildcards() throws SQLException {
+        LocalDate date = LocalDate.now();
+        funkoRepository.save(Funko.builder().name("Baby Yoda").model(Model.DISNEY).price(10.0).releaseDate(date).build());
+        funkoRepository.save(Funko.builder().name("Yoda 100%").model(Model.DISNEY).price(12.0).releaseDate(date).build());
+        funkoRepository.save(Funko.builder().name("Yoda_Gold").model(Model.DISNEY).price(14.0).releaseDate(date).build());
+        assertAll(() -> assertEquals(3, funkoRepository.findByName("YODA").size()),
+                () -> assertEquals(1, funkoRepository.findByName("0%").size()),
+                () -> assertEquals(1, funkoRepository.findByName("a_g").size()),
+                () -> assertEquals(2, funkoRepository.findByNameStartingWith("yoda").size()),
+                () -> assertEquals(0, funkoRepository.findByNameStartingWith("%").size())
+        );
+    }
+
+    /**
+     * Test para comprobar que la paginación recorre todos los elementos una sola vez y en orden de inserción
+     *
+     * @throws SQLException Si hay un error en la base de datos
+     */
+    @Test
+    void testFindAllPaginated() throws SQLException {
+        List<Funko> funkos = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            funkos.add(Funko.builder().name("page" + i).model(Model.MARVEL).price(i).releaseDate(LocalDate.now()).build());
+        }
+        funkoRepository.saveAll(funkos);
+        List<String> names = new ArrayList<>();
+        int pages = 0;
+        String pageToken = null;
+        do {
+            Page<Funko> page = funkoRepository.findAll(pageToken, 3);
+            page.getItems().forEach(f -> names.add(f.getName()));
+            pageToken = page.getNextPageToken();
+            pages++;
+        } while (pageToken != null);
+        int finalPages = pages;
+        assertAll(() -> assertEquals(3, finalPages),
+                () -> assertEquals(funkos.stream().map(Funko::getName).toList(), names),
+                () -> assertThrows(IllegalArgumentException.class, () -> funkoRepository.findAll("no válido", 3))
+        );
+    }
+
+    /**
+     * Test para comprobar que el cursor devuelve todos los elementos en orden y libera la conexión al cerrarse,
+     * aunque no se haya consumido entero
+     *
+     * @throws SQLException Si hay un error en la base de datos
+     */
+    @Test
+    void testStreamAll() throws SQLException {
+        List<Funko> funkos = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            funkos.add(Funko.builder().name("stream" + i).model(Model.OTROS).price(i).releaseDate(LocalDate.now()).build());
+        }
+        funkoRepository.saveAll(funkos);
+        List<String> names;
+        try (Stream<Funko> stream = funkoRepository.streamAll()) {
+            names = stream.map(Funko::getName).toList();
+        }
+        assertEquals(funkos.stream().map(Funko::getName).toList(), names);
+        assertEquals(names, funkoRepository.findAll().stream().map(Funko::getName).toList());
+        for (int i = 0; i < 30; i++) {
+            try (Stream<Funko> stream = funkoRepository.streamAll()) {
+                assertEquals(2, stream.limit(2).count());
+            }
+        }
+    }
+
+    /**
+     * Test para comprobar que los rangos de id de los backups por bloques cubren la tabla sin solaparse
+     *
+     * @throws SQLException Si hay un error en la base de datos
+     */
+    @Test
+    void testRanges() throws SQLException {
+        List<Funko> funkos = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            funkos.add(Funko.builder().name("range" + i).model(Model.OTROS).price(i).releaseDate(LocalDate.now()).build());
+        }
+        funkoRepository.saveAll(funkos);
+        List<Long> starts = funkoRepository.findRangeStartIds(2);
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < starts.size(); i++) {
+            long toId = i + 1 < starts.size() ? starts.get(i + 1) : Long.MAX_VALUE;
+            try (Stream<Funko> stream = funkoRepository.streamRange(starts.get(i), toId)) {
+                names.addAll(stream.map(Funko::getName).toList());
+            }
+        }
+        assertAll(() -> assertEquals(3, starts.size()),
+                () -> assertEquals(funkos.stream().map(Funko::getName).toList(), names),
+                () -> assertThrows(IllegalArgumentException.class, () -> funkoRepository.findRangeStartIds(0))
+        );
+    }
+
+    /**
+     * Test para comprobar las consultas de estadísticas que se calculan en la base de datos
+     *
+     * @throws SQLException Si hay un error en la base de datos
+     */
+    @Test
+    void testStatistics() throws SQLException {
+        assertAll(() -> assertTrue(funkoRepository.findMostExpensive().isEmpty()),
+                () -> assertTrue(funkoRepository.averagePrice().isEmpty()),
+                () -> assertTrue(funkoRepository.countByModel().isEmpty())
+        );
+        funkoRepository.saveAll(List.of(
+                Funko.builder().name("Stitch Surf").model(Model.DISNEY).price(10.0)
+                        .releaseDate(LocalDate.of(2023, 1, 1)).build(),
+                Funko.builder().name("stitch Hula").model(Model.DISNEY).price(30.0)
+                        .releaseDate(LocalDate.of(2023, 12, 31)).build(),
+                Funko.builder().name("Goku").model(Model.ANIME).price(20.0)
+                        .releaseDate(LocalDate.of(2024, 1, 1)).build()));
+        assertAll(() -> assertEquals("stitch Hula", funkoRepository.findMostExpensive().orElseThrow().getName()),
+                () -> assertEquals(20.0, funkoRepository.averagePrice().orElseThrow(), 0.001),
+                () -> assertEquals(Map.of(Model.DISNEY, 2L, Model.ANIME, 1L), funkoRepository.countByModel()),
+                () -> assertEquals(2, funkoRepository.findByReleaseYear(2023).size()),
+                () -> assertEquals(1, funkoRepository.findByReleaseYear(2024).size()),
+                () -> assertEquals(2, funkoRepository.countByNamePrefix("Stitch")),
+                () -> assertEquals(0, funkoRepository.countByNamePrefix("Surf"))
+        );
+    }
+
     /**
      * Test para comprobar Update
      *
@@ -217,4 +353,220 @@ class FunkosRepositoryTestDB {
         boolean deleted = funkoRepository.delete("cac4c061-20ec-4e87-ad3a-b1a7ea12facc");
         assertFalse(deleted);
     }
-}
\ No newline at end of file
+
+    /**
+     * Test para comprobar que el repositorio se puede usar desde varios hilos a la vez
+     *
+     * @throws Exception Si hay un error en la base de datos o en algún hilo
+     */
+    @Test
+    void testConcurrentSaveAndFind() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Optional<Funko>>> futures = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Funko funko = Funko.builder()
+                    .name("concurrent" + i)
+                    .model(Model.MARVEL)
+                    .price(i)
+                    .releaseDate(LocalDate.now())
+                    .build();
+            futures.add(executor.submit(() -> {
+                funkoRepository.save(funko);
+                return funkoRepository.findById(funko.getCod().toString());
+            }));
+        }
+        for (Future<Optional<Funko>> future : futures) {
+            assertTrue(future.get().isPresent());
+        }
+        executor.shutdown();
+        assertEquals(40, funkoRepository.findAll().size());
+    }
+
+    /**
+     * Test para comprobar que las sentencias preparadas se reutilizan entre llamadas
+     *
+     * @throws SQLException Si hay un error en la base de datos
+     */
+    @Test
+    void testPreparedStatementsAreReused() throws SQLException {
+        var stats = DatabaseManager.getInstance().getStatementCacheStats();
+        String id = "cac4c061-20ec-4e87-ad3a-b1a7ea12facc";
+        funkoRepository.findById(id);
+        long hitsBefore = stats.getHits();
+        long missesBefore = stats.getMisses();
+        funkoRepository.findById(id);
+        assertAll(() -> assertEquals(hitsBefore + 1, stats.getHits()),
+                () -> assertEquals(missesBefore, stats.getMisses())
+        );
+    }
+
+    /**
+     * Test para comprobar SaveAll con un lote en el que una fila no se puede insertar
+     *
+     * @throws SQLException Si hay un error en la base de datos
+     */
+    @Test
+    void testSaveAllReportsFailedRows() throws SQLException {
+        List<Funko> funkos = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            funkos.add(Funko.builder()
+                    .name("batch" + i)
+                    .model(Model.DISNEY)
+                    .price(10 + i)
+                    .releaseDate(LocalDate.now())
+                    .build());
+        }
+        Funko tooLong = Funko.builder()
+                .name("x".repeat(300))
+                .model(Model.DISNEY)
+                .price(1)
+                .releaseDate(LocalDate.now())
+                .build();
+        funkos.add(2, tooLong);
+        BatchResult<Funko> result = funkoRepository.saveAll(funkos);
+        assertAll(() -> assertEquals(5, result.getSaved().size()),
+                () -> assertEquals(1, result.getFailed().size()),
+                () -> assertSame(tooLong, result.getFailed().get(0).item()),
+                () -> assertEquals(5, funkoRepository.findAll().size())
+        );
+    }
+
+    /**
+     * Test para comprobar FindAllById con más ids de los que caben en una consulta, ids repetidos,
+     * ids inexistentes e ids sin formato de UUID
+     *
+     * @throws SQLException Si hay un error en la base de datos
+     */
+    @Test
+    void testFindAllById() throws SQLException {
+        List<Funko> funkos = new ArrayList<>();
+        for (int i = 0; i < 700; i++) {
+            funkos.add(Funko.builder()
+                    .name("bulk" + i)
+                    .model(Model.MARVEL)
+                    .price(i)
+                    .releaseDate(LocalDate.now())
+                    .build());
+        }
+        funkoRepository.saveAll(funkos);
+        List<String> ids = new ArrayList<>();
+        funkos.forEach(funko -> ids.add(funko.getCod().toString()));
+        ids.add(ids.get(0));
+        ids.add("cac4c061-20ec-4e87-ad3a-b1a7ea12facc");
+        ids.add("no-es-un-uuid");
+        Map<String, Funko> found = funkoRepository.findAllById(ids);
+        assertAll(() -> assertEquals(700, found.size()),
+                () -> assertEquals("bulk0", found.get(ids.get(0)).getName()),
+                () -> assertEquals("bulk699", found.get(ids.get(699)).getName()),
+                () -> assertFalse(found.containsKey("cac4c061-20ec-4e87-ad3a-b1a7ea12facc")),
+                () -> assertTrue(funkoRepository.findAllById(List.of()).isEmpty())
+        );
+    }
+
+    /**
+     * Test para comprobar que inTransaction deshace los cambios si la operación falla, devuelve la conexión
+     * y confirma los cambios si termina bien
+     *
+     * @throws SQLException Si hay un error en la base de datos
+     */
+    @Test
+    void testInTransaction() throws SQLException {
+        DatabaseManager database = DatabaseManager.getInstance();
+        Funko rolledBack = Funko.builder().name("rollback").model(Model.OTROS).price(1).releaseDate(LocalDate.now()).build();
+        Funko committed = Funko.builder().name("commit").model(Model.OTROS).price(2).releaseDate(LocalDate.now()).build();
+        assertThrows(IllegalStateException.class, () -> database.inTransaction(() -> {
+            funkoRepository.save(rolledBack);
+            throw new IllegalStateException("Error");
+        }));
+        assertTrue(funkoRepository.findById(rolledBack.getCod().toString()).isEmpty());
+        database.inTransaction(() -> {
+            funkoRepository.save(committed);
+            return database.inTransaction(() -> funkoRepository.findById(committed.getCod().toString()));
+        });
+        assertAll(() -> assertTrue(funkoRepository.findById(committed.getCod().toString()).isPresent()),
+                () -> assertEquals(1, funkoRepository.findAll().size())
+        );
+    }
+
+    /**
+     * Test para comprobar las consultas de cambios y borrados de los backups incrementales y el guardado y
+     * borrado por lotes con el que se restauran
+     *
+     * @throws SQLException Si hay un error en la base de datos
+     */
+    @Test
+    void testIncrementalChanges() throws SQLException {
+        Funko updated = Funko.builder().name("updated").model(Model.OTROS).price(1).releaseDate(LocalDate.now()).build();
+        Funko deleted = Funko.builder().name("deleted").model(Model.OTROS).price(2).releaseDate(LocalDate.now()).build();
+        funkoRepository.saveAll(List.of(updated, deleted));
+        LocalDateTime since = funkoRepository.currentTimestamp();
+        updated.setPrice(10);
+        funkoRepository.update(updated.getCod().toString(), updated);
+        funkoRepository.delete(deleted.getCod().toString());
+        Funko created = Funko.builder().name("created").model(Model.OTROS).price(3).releaseDate(LocalDate.now()).build();
+        funkoRepository.save(created);
+        LocalDateTime until = funkoRepository.currentTimestamp();
+        List<String> changed;
+        try (Stream<Funko> stream = funkoRepository.streamChangedSince(since, until)) {
+            changed = stream.map(Funko::getName).toList();
+        }
+        assertAll(() -> assertEquals(List.of("updated", "created"), changed),
+                () -> assertEquals(List.of(deleted.getCod().toString()), funkoRepository.findDeletedSince(since, until))
+        );
+        updated.setPrice(20);
+        BatchResult<Funko> result = funkoRepository.upsertAll(List.of(updated, deleted));
+        assertAll(() -> assertEquals(2, result.getSaved().size()),
+                () -> assertEquals(20, funkoRepository.findById(updated.getCod().toString()).orElseThrow().getPrice()),
+                () -> assertTrue(funkoRepository.findDeletedSince(since, funkoRepository.currentTimestamp()).isEmpty()),
+                () -> assertEquals(2, funkoRepository.deleteAll(List.of(updated.getCod().toString(), "no-uuid",
+                        deleted.getCod().toString()))),
+                () -> assertEquals(1, funkoRepository.findAll().size())
+        );
+    }
+
+    /**
+     * Test para comprobar que las lecturas de inSnapshot ven la misma foto de la base de datos y la misma hora
+     * aunque otro hilo confirme escrituras entre ellas
+     *
+     * @throws Exception Si hay un error en la base de datos o en el hilo que escribe
+     */
+    @Test
+    void testSnapshotReads() throws Exception {
+        Funko kept = Funko.builder().name("kept").model(Model.OTROS).price(1).releaseDate(LocalDate.now()).build();
+        Funko removed = Funko.builder().name("removed").model(Model.OTROS).price(2).releaseDate(LocalDate.now()).build();
+        funkoRepository.saveAll(List.of(kept, removed));
+        LocalDateTime since = funkoRepository.currentTimestamp();
+        Funko created = Funko.builder().name("created").model(Model.OTROS).price(3).releaseDate(LocalDate.now()).build();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            List<Object> reads = funkoRepository.inSnapshot(() -> {
+                LocalDateTime mark = funkoRepository.currentTimestamp();
+                List<Funko> before = funkoRepository.findAll();
+                try {
+                    executor.submit(() -> {
+                        funkoRepository.save(created);
+                        return funkoRepository.delete(removed.getCod().toString());
+                    }).get();
+                } catch (Exception e) {
+                    throw new SQLException(e);
+                }
+                List<String> changed;
+                try (Stream<Funko> stream = funkoRepository.streamChangedSince(since, LocalDateTime.MAX)) {
+                    changed = stream.map(Funko::getName).toList();
+                }
+                return List.of(mark, funkoRepository.currentTimestamp(), before, funkoRepository.findAll(),
+                        changed, funkoRepository.findDeletedSince(since, LocalDateTime.MAX));
+            });
+            assertAll(() -> assertEquals(reads.get(0), reads.get(1)),
+                    () -> assertEquals(reads.get(2), reads.get(3)),
+                    () -> assertEquals(List.of(), reads.get(4)),
+                    () -> assertEquals(List.of(), reads.get(5)),
+                    () -> assertEquals(2, funkoRepository.findAll().size()),
+                    () -> assertEquals(List.of(removed.getCod().toString()),
+                            funkoRepository.findDeletedSince(since, LocalDateTime.MAX))
+            );
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
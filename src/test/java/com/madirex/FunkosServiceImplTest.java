@@ -1,20 +1,42 @@
 package com.madirex;
 
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 import com.madirex.exceptions.*;
+import com.madirex.models.BatchResult;
 import com.madirex.models.Funko;
 import com.madirex.models.Model;
 import com.madirex.repositories.funko.FunkoRepositoryImpl;
 import com.madirex.services.crud.funko.FunkoServiceImpl;
+import com.madirex.services.database.TransactionCallback;
+import com.madirex.services.io.BackupFiles;
+import com.madirex.utils.LocalDateAdapter;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -31,6 +53,14 @@ class FunkosServiceImplTest {
     @InjectMocks
     FunkoServiceImpl service;
 
+    /**
+     * Método que se ejecuta después de cada test
+     */
+    @AfterEach
+    void tearDown() {
+        service.close();
+    }
+
     /**
      * Test para FindAll
      *
@@ -70,7 +100,7 @@ class FunkosServiceImplTest {
                 () -> assertEquals(result.get(0).getReleaseDate(), funkos.get(0).getReleaseDate(), "La fecha de lanzamiento del Funko no es la esperada"),
                 () -> assertEquals(result.get(0).getModel(), funkos.get(0).getModel(), "El modelo del Funko no es el esperado")
         );
-        verify(repository, times(2)).findByName("cuack");
+        verify(repository, times(1)).findByName("cuack");
     }
 
     /**
@@ -84,6 +114,21 @@ class FunkosServiceImplTest {
         assertThrows(FunkoNotFoundException.class, () -> service.findByName("name"));
     }
 
+    /**
+     * Test para FindByNameStartingWith
+     *
+     * @throws SQLException           Si hay un error en la base de datos
+     * @throws FunkoNotFoundException Si no se encuentra ningún Funko
+     */
+    @Test
+    void testFindByNameStartingWith() throws SQLException, FunkoNotFoundException {
+        var funkos = List.of(Funko.builder().name("cuack").price(12.42).build());
+        when(repository.findByNameStartingWith("cu")).thenReturn(funkos);
+        var result = service.findByNameStartingWith("cu");
+        assertEquals("cuack", result.get(0).getName(), "El Funko no tiene el nombre esperado");
+        verify(repository, times(1)).findByNameStartingWith("cu");
+    }
+
     /**
      * Test para Backup
      */
@@ -91,19 +136,268 @@ class FunkosServiceImplTest {
     void testBackupDirectoryExists() {
         String path = "data";
         String fileName = "backup.json";
-        service = new FunkoServiceImpl(repository);
         assertDoesNotThrow(() -> service.backup(path, fileName));
     }
 
+    /**
+     * Test para comprobar que el backup escribe todos los Funkos del repositorio, se puede volver a leer
+     * y no deja ficheros temporales
+     *
+     * @param directory Directorio temporal del test
+     * @throws Exception Si hay un error al escribir o leer el backup
+     */
+    @Test
+    void testBackupContent(@TempDir Path directory) throws Exception {
+        var funkos = List.of(
+                Funko.builder().name("test1").price(42.0).releaseDate(LocalDate.of(2023, 1, 1)).model(Model.DISNEY).build(),
+                Funko.builder().name("test2").price(42.24).releaseDate(LocalDate.of(2023, 2, 1)).model(Model.MARVEL).build()
+        );
+        when(repository.streamAll()).thenReturn(funkos.stream());
+        Files.writeString(directory.resolve("backup.json"), "anterior");
+        service.backup(directory.toString(), "backup.json");
+        Gson gson = new GsonBuilder().registerTypeAdapter(LocalDate.class, new LocalDateAdapter()).create();
+        Funko[] read = gson.fromJson(Files.readString(directory.resolve("backup.json")), Funko[].class);
+        try (var files = Files.list(directory)) {
+            assertEquals(1, files.count(), "Quedan ficheros temporales en el directorio");
+        }
+        assertEquals(funkos, List.of(read));
+    }
+
+    /**
+     * Test para comprobar que la restauración guarda los Funkos válidos del backup y cuenta los no válidos
+     *
+     * @param directory Directorio temporal del test
+     * @throws Exception Si hay un error al leer el backup
+     */
+    @Test
+    void testRestore(@TempDir Path directory) throws Exception {
+        Path backup = directory.resolve("backup.json");
+        Files.writeString(backup, """
+                [
+                  {"cod": "3b6c6f58-79b9-434b-82ab-01a2d6e4434a", "name": "Spiderman", "model": "MARVEL",
+                   "price": 15.99, "releaseDate": "2022-05-01"},
+                  {"cod": "f8f7ae42-5b01-4d3b-82ab-2d1a2d6e4434", "name": "", "model": "DISNEY",
+                   "price": 25.99, "releaseDate": "2023-01-01"},
+                  {"cod": "6b6c6f58-7c6b-434b-82ab-01a2d6e4434a", "name": "Goku", "model": "ANIME",
+                   "price": 9.5, "releaseDate": "2021-03-01"}
+                ]
+                """);
+        when(repository.saveAll(anyCollection())).thenAnswer(invocation -> {
+            BatchResult<Funko> batch = new BatchResult<>();
+            Collection<Funko> funkos = invocation.getArgument(0);
+            funkos.forEach(batch::addSaved);
+            return batch;
+        });
+        var report = service.restore(backup.toString());
+        assertAll("restore",
+                () -> assertEquals(3, report.read()),
+                () -> assertEquals(2, report.restored()),
+                () -> assertEquals(1, report.invalid()),
+                () -> assertEquals(0, report.failed())
+        );
+        verify(repository, times(1)).saveAll(anyCollection());
+        Files.writeString(backup, "[{\"cod\": ");
+        assertThrows(IOException.class, () -> service.restore(backup.toString()));
+        Files.writeString(backup, "{\"cod\": \"3b6c6f58-79b9-434b-82ab-01a2d6e4434a\"}");
+        assertThrows(IOException.class, () -> service.restore(backup.toString()));
+        Files.writeString(backup, "[{\"cod\": \"3b6c6f58-79b9-434b-82ab-01a2d6e4434a\", \"releaseDate\": \"2022-13-45\"}]");
+        assertThrows(IOException.class, () -> service.restore(backup.toString()));
+    }
+
+    /**
+     * Test para comprobar que un snapshot binario se restaura con los mismos Funkos del backup y que uno
+     * dañado no se restaura en parte
+     *
+     * @param directory Directorio temporal del test
+     * @throws Exception Si hay un error al escribir o leer el snapshot
+     */
+    @Test
+    void testSnapshotBackupAndRestore(@TempDir Path directory) throws Exception {
+        var funkos = List.of(
+                Funko.builder().name("test1").price(42.0).releaseDate(LocalDate.of(2023, 1, 1)).model(Model.DISNEY).build(),
+                Funko.builder().name("").price(42.24).releaseDate(LocalDate.of(2023, 2, 1)).model(Model.MARVEL).build()
+        );
+        when(repository.streamAll()).thenReturn(funkos.stream());
+        assertEquals(2, service.backupSnapshot(directory.toString(), "backup.snap"));
+        try (var files = Files.list(directory)) {
+            assertEquals(1, files.count(), "Quedan ficheros temporales en el directorio");
+        }
+        List<Funko> restored = new ArrayList<>();
+        when(repository.saveAll(anyCollection())).thenAnswer(invocation -> {
+            BatchResult<Funko> batch = new BatchResult<>();
+            Collection<Funko> chunk = invocation.getArgument(0);
+            chunk.forEach(batch::addSaved);
+            restored.addAll(chunk);
+            return batch;
+        });
+        var report = service.restoreSnapshot(directory.resolve("backup.snap").toString());
+        assertAll("restore",
+                () -> assertEquals(2, report.read()),
+                () -> assertEquals(1, report.restored()),
+                () -> assertEquals(1, report.invalid()),
+                () -> assertEquals(funkos.subList(0, 1), restored)
+        );
+        Path snapshot = directory.resolve("backup.snap");
+        byte[] bytes = Files.readAllBytes(snapshot);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(snapshot, bytes);
+        assertThrows(IOException.class, () -> service.restoreSnapshot(snapshot.toString()));
+        verify(repository, times(1)).saveAll(anyCollection());
+        assertThrows(IOException.class, () -> service.backupSnapshot("ruta/inexistente", "backup.snap"));
+    }
+
+    /**
+     * Test para comprobar que una cadena con un backup completo y uno incremental se restaura con los cambios
+     * y borrados de ambos, y que una cadena incompleta no se restaura
+     *
+     * @param directory Directorio temporal del test
+     * @throws Exception Si hay un error al escribir o leer los backups
+     */
+    @Test
+    void testIncrementalBackupAndRestore(@TempDir Path directory) throws Exception {
+        Funko updated = Funko.builder().name("test1").price(42.0).releaseDate(LocalDate.of(2023, 1, 1)).model(Model.DISNEY).build();
+        Funko deleted = Funko.builder().name("test2").price(42.24).releaseDate(LocalDate.of(2023, 2, 1)).model(Model.MARVEL).build();
+        Funko created = Funko.builder().name("test3").price(10.5).releaseDate(LocalDate.of(2023, 3, 1)).model(Model.ANIME).build();
+        LocalDateTime baseMark = LocalDateTime.of(2023, 4, 1, 10, 0);
+        LocalDateTime incrementMark = baseMark.plusHours(1);
+        when(repository.inSnapshot(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).execute());
+        when(repository.currentTimestamp()).thenReturn(baseMark, incrementMark);
+        when(repository.streamAll()).thenReturn(Stream.of(updated, deleted));
+        var base = service.backupIncremental(directory.toString());
+        Funko changed = Funko.builder().cod(updated.getCod()).name("test1").price(50.0)
+                .releaseDate(LocalDate.of(2023, 1, 1)).model(Model.DISNEY).build();
+        when(repository.findDeletedSince(any(), any())).thenReturn(List.of(deleted.getCod().toString()));
+        when(repository.streamChangedSince(any(), any())).thenReturn(Stream.of(changed, created));
+        var increment = service.backupIncremental(directory.toString());
+        assertAll("backup",
+                () -> assertEquals(0, base.sequence()),
+                () -> assertNull(base.since()),
+                () -> assertEquals(2, base.rows()),
+                () -> assertEquals(1, increment.sequence()),
+                () -> assertEquals(base.until(), increment.since()),
+                () -> assertEquals(2, increment.rows()),
+                () -> assertEquals(1, increment.deleted()),
+                () -> assertEquals(incrementMark.toString(), increment.until())
+        );
+        verify(repository, times(2)).inSnapshot(any());
+        verify(repository).findDeletedSince(baseMark, incrementMark);
+        verify(repository).streamChangedSince(baseMark, incrementMark);
+        Map<UUID, Funko> stored = new HashMap<>();
+        when(repository.upsertAll(anyCollection())).thenAnswer(invocation -> {
+            BatchResult<Funko> batch = new BatchResult<>();
+            Collection<Funko> chunk = invocation.getArgument(0);
+            chunk.forEach(funko -> {
+                stored.put(funko.getCod(), funko);
+                batch.addSaved(funko);
+            });
+            return batch;
+        });
+        when(repository.deleteAll(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> ids = invocation.getArgument(0);
+            ids.forEach(id -> stored.remove(UUID.fromString(id)));
+            return ids.size();
+        });
+        var report = service.restoreIncremental(directory.toString());
+        assertAll("restore",
+                () -> assertEquals(4, report.read()),
+                () -> assertEquals(4, report.restored()),
+                () -> assertEquals(Map.of(changed.getCod(), changed, created.getCod(), created), stored)
+        );
+        Files.delete(directory.resolve(base.file()));
+        assertThrows(IOException.class, () -> service.restoreIncremental(directory.toString()));
+    }
+
+    /**
+     * Test para comprobar que un backup por bloques se restaura entero y que un bloque dañado se detecta
+     * antes de restaurar nada
+     *
+     * @param directory Directorio temporal del test
+     * @throws Exception Si hay un error al escribir o leer el backup
+     */
+    @Test
+    void testChunkedBackupAndRestore(@TempDir Path directory) throws Exception {
+        var funkos = List.of(
+                Funko.builder().name("test1").price(42.0).releaseDate(LocalDate.of(2023, 1, 1)).model(Model.DISNEY).build(),
+                Funko.builder().name("test2").price(42.24).releaseDate(LocalDate.of(2023, 2, 1)).model(Model.MARVEL).build(),
+                Funko.builder().name("test3").price(10.5).releaseDate(LocalDate.of(2023, 3, 1)).model(Model.ANIME).build()
+        );
+        when(repository.findRangeStartIds(anyInt())).thenReturn(List.of(1L, 3L));
+        when(repository.streamRange(1L, 3L)).thenReturn(funkos.subList(0, 2).stream());
+        when(repository.streamRange(3L, Long.MAX_VALUE)).thenReturn(funkos.subList(2, 3).stream());
+        var manifest = service.backupChunked(directory.toString(), "backup");
+        Path backup = directory.resolve("backup");
+        try (var files = Files.list(directory)) {
+            assertEquals(1, files.count(), "Quedan directorios temporales");
+        }
+        assertAll("backup",
+                () -> assertEquals(3, manifest.rows()),
+                () -> assertEquals(2, manifest.chunks().size()),
+                () -> assertEquals(2, manifest.chunks().get(0).rows()),
+                () -> assertTrue(Files.exists(backup.resolve("manifest.json")))
+        );
+        List<Funko> restored = new CopyOnWriteArrayList<>();
+        when(repository.saveAll(anyCollection())).thenAnswer(invocation -> {
+            BatchResult<Funko> batch = new BatchResult<>();
+            Collection<Funko> chunk = invocation.getArgument(0);
+            chunk.forEach(batch::addSaved);
+            restored.addAll(chunk);
+            return batch;
+        });
+        var report = service.restoreChunked(backup.toString());
+        assertAll("restore",
+                () -> assertEquals(3, report.read()),
+                () -> assertEquals(3, report.restored()),
+                () -> assertEquals(0, report.invalid()),
+                () -> assertEquals(Set.copyOf(funkos), Set.copyOf(restored))
+        );
+        Path chunk = backup.resolve(manifest.chunks().get(1).file());
+        byte[] bytes = Files.readAllBytes(chunk);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(chunk, bytes);
+        assertThrows(IOException.class, () -> service.restoreChunked(backup.toString()));
+        verify(repository, times(2)).saveAll(anyCollection());
+        Files.writeString(backup.resolve("manifest.json"), "[1]");
+        assertThrows(IOException.class, () -> service.restoreChunked(backup.toString()));
+    }
+
+    /**
+     * Test para comprobar que un backup por bloques sustituye al anterior sin dejar el apartado y que, si el
+     * nuevo no se puede mover a su sitio, el anterior se recupera
+     *
+     * @param directory Directorio temporal del test
+     * @throws Exception Si hay un error al escribir el backup
+     */
+    @Test
+    void testChunkedBackupReplacesPrevious(@TempDir Path directory) throws Exception {
+        var funko = Funko.builder().name("test1").price(42.0).releaseDate(LocalDate.of(2023, 1, 1)).model(Model.DISNEY).build();
+        when(repository.findRangeStartIds(anyInt())).thenReturn(List.of(1L));
+        when(repository.streamRange(1L, Long.MAX_VALUE)).thenAnswer(invocation -> Stream.of(funko));
+        service.backupChunked(directory.toString(), "backup");
+        var manifest = service.backupChunked(directory.toString(), "backup");
+        Path backup = directory.resolve("backup");
+        try (var files = Files.list(directory)) {
+            assertEquals(List.of(backup), files.toList(), "Queda el backup anterior o un temporal");
+        }
+        assertEquals(1, manifest.rows());
+        assertThrows(IOException.class, () -> BackupFiles.replaceDirectory(directory.resolve("inexistente"), backup));
+        try (var files = Files.list(directory)) {
+            assertEquals(List.of(backup), files.toList(), "No se ha recuperado el backup anterior");
+        }
+        assertTrue(Files.exists(backup.resolve("manifest.json")));
+    }
+
     /**
      * Test para Backup cuando el directorio no existe
+     *
+     * @throws SQLException Si hay un error en la base de datos
      */
     @Test
-    void testBackupDirectoryNotExists() {
+    void testBackupDirectoryNotExists() throws SQLException {
         String path = "ruta/inexistente";
         String fileName = "backup.json";
-        service = new FunkoServiceImpl(repository);
-        assertDoesNotThrow(() -> service.backup(path, fileName));
+        assertThrows(IOException.class, () -> service.backup(path, fileName));
+        verify(repository, never()).streamAll();
     }
 
     /**
@@ -182,6 +476,28 @@ class FunkosServiceImplTest {
         assertThrows(FunkoNotSavedException.class, () -> service.save(funkoToSave));
     }
 
+    /**
+     * Test para SaveAll
+     *
+     * @throws SQLException Si hay un error en la base de datos
+     */
+    @Test
+    void testSaveAll() throws SQLException {
+        var funkos = List.of(
+                Funko.builder().name("test1").price(42.0).releaseDate(LocalDate.now()).model(Model.ANIME).build(),
+                Funko.builder().name("test2").price(42.24).releaseDate(LocalDate.now()).model(Model.ANIME).build()
+        );
+        BatchResult<Funko> batchResult = new BatchResult<>();
+        funkos.forEach(batchResult::addSaved);
+        when(repository.saveAll(funkos)).thenReturn(batchResult);
+        var result = service.saveAll(funkos);
+        assertAll("saveAll",
+                () -> assertEquals(2, result.getSaved().size(), "No se han guardado 2 Funkos"),
+                () -> assertTrue(result.getFailed().isEmpty(), "Hay Funkos fallidos")
+        );
+        verify(repository, times(1)).saveAll(funkos);
+    }
+
     /**
      * Test para Update
      *
@@ -246,4 +562,95 @@ class FunkosServiceImplTest {
         when(repository.delete("63161c2e-1602-44b5-bd8b-3b424f7b2b4c")).thenReturn(false);
         assertThrows(FunkoNotRemovedException.class, () -> service.delete("63161c2e-1602-44b5-bd8b-3b424f7b2b4c"));
     }
+
+    /**
+     * Test para comprobar que actualizar y eliminar un Funko invalida su entrada en la caché
+     *
+     * @throws Exception Si hay un error en la base de datos o el Funko no es válido
+     */
+    @Test
+    void testWritesInvalidateCache() throws Exception {
+        var funko = Funko.builder().name("cuack").price(12.42).releaseDate(LocalDate.now()).model(Model.DISNEY).build();
+        String id = funko.getCod().toString();
+        when(repository.findById(id)).thenReturn(Optional.of(funko));
+        when(repository.update(id, funko)).thenReturn(Optional.of(funko));
+        when(repository.delete(id)).thenReturn(true);
+        service.findById(id);
+        assertTrue(service.getCache().containsKey(id));
+        service.update(id, funko);
+        assertFalse(service.getCache().containsKey(id));
+        service.findById(id);
+        service.delete(id);
+        assertFalse(service.getCache().containsKey(id));
+        verify(repository, times(2)).findById(id);
+    }
+
+    /**
+     * Test para comprobar que un id inexistente solo se consulta una vez hasta que se guarda un Funko con ese id
+     *
+     * @throws Exception Si hay un error en la base de datos o el Funko no se guarda
+     */
+    @Test
+    void testMissingIdIsCached() throws Exception {
+        var funko = Funko.builder().name("cuack").price(12.42).releaseDate(LocalDate.now()).model(Model.DISNEY).build();
+        String id = funko.getCod().toString();
+        when(repository.findById(id)).thenReturn(Optional.empty()).thenReturn(Optional.of(funko));
+        when(repository.save(funko)).thenReturn(Optional.of(funko));
+        assertTrue(service.findById(id).isEmpty());
+        assertTrue(service.findById(id).isEmpty());
+        service.save(funko);
+        assertTrue(service.findById(id).isPresent());
+        verify(repository, times(2)).findById(id);
+    }
+
+    /**
+     * Test para comprobar que la caché negativa no crece al buscar muchos ids inexistentes distintos que
+     * caducan sin volver a leerse
+     *
+     * @throws SQLException Si hay un error en la base de datos
+     */
+    @Test
+    void testMissingIdsFloodStaysBounded() throws SQLException {
+        AtomicLong time = new AtomicLong();
+        when(repository.findById(anyString())).thenReturn(Optional.empty());
+        try (FunkoServiceImpl timedService = new FunkoServiceImpl(repository, time::get)) {
+            var missingIds = timedService.getMissingIds();
+            for (int round = 0; round < 200; round++) {
+                for (int i = 0; i < 100; i++) {
+                    assertTrue(timedService.findById(UUID.randomUUID().toString()).isEmpty());
+                }
+                assertEquals(100, missingIds.size());
+                time.addAndGet(Duration.ofSeconds(31).toNanos());
+                missingIds.cleanUp();
+                assertEquals(0, missingIds.size());
+                assertTrue(missingIds.clockSize() <= 16, "Nodos en el reloj: " + missingIds.clockSize());
+            }
+        }
+    }
+
+    /**
+     * Test para comprobar que FindAllById sirve los Funkos de la caché y busca el resto con una sola llamada
+     *
+     * @throws SQLException Si hay un error en la base de datos
+     */
+    @Test
+    void testFindAllById() throws SQLException {
+        var cached = Funko.builder().name("cached").price(1.0).releaseDate(LocalDate.now()).model(Model.DISNEY).build();
+        var stored = Funko.builder().name("stored").price(2.0).releaseDate(LocalDate.now()).model(Model.DISNEY).build();
+        String cachedId = cached.getCod().toString();
+        String storedId = stored.getCod().toString();
+        String missingId = "cac4c061-20ec-4e87-ad3a-b1a7ea12facc";
+        service.getCache().put(cachedId, cached);
+        when(repository.findAllById(List.of(missingId, storedId))).thenReturn(Map.of(storedId, stored));
+        var result = service.findAllById(List.of(missingId, storedId, cachedId));
+        assertAll("findAllById",
+                () -> assertEquals(List.of(storedId, cachedId), List.copyOf(result.keySet())),
+                () -> assertSame(stored, result.get(storedId)),
+                () -> assertSame(cached, result.get(cachedId)),
+                () -> assertTrue(service.getCache().containsKey(storedId)),
+                () -> assertTrue(service.findById(missingId).isEmpty())
+        );
+        verify(repository, times(1)).findAllById(anyCollection());
+        verify(repository, never()).findById(anyString());
+    }
 }
\ No newline at end of file
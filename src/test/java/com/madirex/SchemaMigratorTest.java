@@ -0,0 +1,73 @@
+package com.madirex;
+
+import com.madirex.services.database.SchemaMigrator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de testeo para la clase SchemaMigrator
+ */
+class SchemaMigratorTest {
+
+    private Connection connection;
+
+    /**
+     * Método que se ejecuta antes de cada test
+     *
+     * @throws SQLException Si no se puede abrir la base de datos
+     */
+    @BeforeEach
+    void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:migrator_test");
+    }
+
+    /**
+     * Método que se ejecuta después de cada test
+     *
+     * @throws SQLException Si no se puede cerrar la base de datos
+     */
+    @AfterEach
+    void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    /**
+     * Test para comprobar que una base de datos existente con el esquema original se migra a la última versión
+     * y que las migraciones no se repiten
+     *
+     * @throws SQLException Si hay un error en la base de datos
+     */
+    @Test
+    void testMigrateExistingDatabase() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE funko (id BIGINT PRIMARY KEY AUTO_INCREMENT, " +
+                    "cod UUID DEFAULT RANDOM_UUID() NOT NULL, nombre VARCHAR(255), modelo VARCHAR(6), " +
+                    "precio DECIMAL(10, 2), fecha_lanzamiento DATE, created_at TIMESTAMP, updated_at TIMESTAMP)");
+            statement.execute("INSERT INTO funko (nombre, modelo, precio) VALUES ('Baby Yoda', 'DISNEY', 10)");
+        }
+        SchemaMigrator migrator = new SchemaMigrator();
+        int applied = migrator.migrate(connection);
+        assertAll(() -> assertEquals(5, applied),
+                () -> assertEquals(5, migrator.currentVersion(connection)),
+                () -> assertEquals(0, migrator.migrate(connection)),
+                () -> assertTrue(connection.getAutoCommit())
+        );
+        try (Statement statement = connection.createStatement()) {
+            var res = statement.executeQuery("SELECT COUNT(*) FROM funko WHERE nombre = 'BABY YODA'");
+            res.next();
+            assertEquals(1, res.getInt(1));
+            statement.execute("INSERT INTO funko (cod, nombre) VALUES ('1d5b7c3e-8f1b-4b5e-9b1a-2c3d4e5f6a7b', 'A')");
+            assertThrows(SQLException.class, () -> statement.execute(
+                    "INSERT INTO funko (cod, nombre) VALUES ('1d5b7c3e-8f1b-4b5e-9b1a-2c3d4e5f6a7b', 'B')"));
+            statement.execute("DROP ALL OBJECTS");
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.madirex;
+
+import com.madirex.services.cache.TinyLfuCache;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de testeo para la clase TinyLfuCache
+ */
+class TinyLfuCacheTest {
+
+    /**
+     * Test para comprobar las operaciones básicas y los contadores de aciertos y fallos
+     */
+    @Test
+    void testPutGetRemove() {
+        TinyLfuCache<String, Integer> cache = new TinyLfuCache<>(10);
+        assertNull(cache.get("a"));
+        assertTrue(cache.put("a", 1));
+        assertTrue(cache.put("a", 2));
+        assertAll(() -> assertEquals(2, cache.get("a")),
+                () -> assertEquals(1, cache.size()),
+                () -> assertEquals(2, cache.remove("a")),
+                () -> assertNull(cache.get("a")),
+                () -> assertEquals(1, cache.getStats().getHits()),
+                () -> assertEquals(2, cache.getStats().getMisses())
+        );
+    }
+
+    /**
+     * Test para comprobar que un recorrido de claves de un solo uso, intercalado con las lecturas habituales,
+     * no desaloja las claves frecuentes
+     */
+    @Test
+    void testFrequentKeysSurviveScan() {
+        TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<>(60);
+        for (int round = 0; round < 5; round++) {
+            for (int key = 0; key < 50; key++) {
+                getOrLoad(cache, key);
+            }
+        }
+        for (int key = 1000; key < 6000; key++) {
+            getOrLoad(cache, key);
+            getOrLoad(cache, key % 50);
+        }
+        long hotKeys = 0;
+        for (int key = 0; key < 50; key++) {
+            if (cache.containsKey(key)) {
+                hotKeys++;
+            }
+        }
+        long finalHotKeys = hotKeys;
+        assertAll(() -> assertTrue(cache.size() <= 60),
+                () -> assertEquals(50, finalHotKeys),
+                () -> assertTrue(cache.getStats().getRejections() > 0)
+        );
+    }
+
+    /**
+     * Lee una clave de la caché y la guarda si no estaba
+     *
+     * @param cache caché
+     * @param key   clave
+     */
+    private void getOrLoad(TinyLfuCache<Integer, Integer> cache, int key) {
+        if (cache.get(key) == null) {
+            cache.put(key, key);
+        }
+    }
+
+    /**
+     * Test para comprobar que un valor leído antes de una escritura o invalidación de su clave no se guarda
+     */
+    @Test
+    void testPutIfUnchanged() {
+        TinyLfuCache<String, Integer> cache = new TinyLfuCache<>(10);
+        long stamp = cache.stamp("a");
+        cache.remove("a");
+        assertFalse(cache.putIfUnchanged("a", 1, stamp));
+        stamp = cache.stamp("a");
+        cache.put("a", 2);
+        assertFalse(cache.putIfUnchanged("a", 1, stamp));
+        assertEquals(2, cache.get("a"));
+        cache.clear();
+        stamp = cache.stamp("a");
+        assertTrue(cache.putIfUnchanged("a", 3, stamp));
+        assertEquals(3, cache.get("a"));
+    }
+
+    /**
+     * Test para comprobar que el peso de las entradas respeta el máximo
+     */
+    @Test
+    void testWeightBound() {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(10, (key, value) -> value.length());
+        cache.put("a", "12345");
+        cache.put("b", "12345");
+        cache.put("c", "123");
+        assertAll(() -> assertEquals(2, cache.size()),
+                () -> assertFalse(cache.put("d", "12345678901")),
+                () -> assertEquals(1, cache.getStats().getEvictions())
+        );
+    }
+
+    /**
+     * Test para comprobar que las entradas caducan tras el tiempo configurado
+     */
+    @Test
+    void testExpireAfterWrite() {
+        AtomicLong time = new AtomicLong();
+        try (TinyLfuCache<String, Integer> cache = TinyLfuCache.<String, Integer>builder()
+                .maxWeight(10)
+                .expireAfterWrite(Duration.ofSeconds(10))
+                .ticker(time::get)
+                .build()) {
+            cache.put("a", 1);
+            cache.put("b", 2);
+            time.addAndGet(Duration.ofSeconds(9).toNanos());
+            cache.put("b", 3);
+            assertEquals(1, cache.get("a"));
+            time.addAndGet(Duration.ofSeconds(1).toNanos());
+            assertNull(cache.get("a"));
+            cache.cleanUp();
+            assertAll(() -> assertEquals(3, cache.get("b")),
+                    () -> assertEquals(1, cache.size()),
+                    () -> assertEquals(1, cache.getStats().getExpirations())
+            );
+        }
+    }
+
+    /**
+     * Test para comprobar que las entradas caducadas no se quedan en el reloj cuando la caché nunca se llena,
+     * tanto si caducan al leerlas como si las retira cleanUp
+     */
+    @Test
+    void testExpiredEntriesLeaveClock() {
+        AtomicLong time = new AtomicLong();
+        try (TinyLfuCache<String, Integer> cache = TinyLfuCache.<String, Integer>builder()
+                .maxWeight(1000)
+                .expireAfterWrite(Duration.ofSeconds(10))
+                .ticker(time::get)
+                .build()) {
+            for (int round = 0; round < 1000; round++) {
+                for (int i = 0; i < 100; i++) {
+                    cache.put(round + "-" + i, i);
+                }
+                time.addAndGet(Duration.ofSeconds(10).toNanos());
+                if (round % 2 == 0) {
+                    for (int i = 0; i < 100; i++) {
+                        assertNull(cache.get(round + "-" + i));
+                    }
+                } else {
+                    cache.cleanUp();
+                }
+                assertEquals(0, cache.size());
+                assertTrue(cache.clockSize() <= 16, "Nodos en el reloj: " + cache.clockSize());
+            }
+            assertEquals(100_000, cache.getStats().getExpirations());
+        }
+    }
+
+    /**
+     * Test para comprobar que una entrada leída tras el tiempo de refresco se recarga en segundo plano
+     * mientras se sigue devolviendo el valor anterior
+     *
+     * @throws InterruptedException Si se interrumpe la espera
+     */
+    @Test
+    void testRefreshAfterWrite() throws InterruptedException {
+        AtomicLong time = new AtomicLong();
+        AtomicInteger loads = new AtomicInteger();
+        try (TinyLfuCache<String, Integer> cache = TinyLfuCache.<String, Integer>builder()
+                .maxWeight(10)
+                .expireAfterWrite(Duration.ofSeconds(10))
+                .refreshAfterWrite(Duration.ofSeconds(5))
+                .loader(key -> 100 + loads.incrementAndGet())
+                .ticker(time::get)
+                .build()) {
+            cache.put("a", 1);
+            time.addAndGet(Duration.ofSeconds(6).toNanos());
+            assertEquals(1, cache.get("a"));
+            for (int i = 0; i < 100 && cache.getStats().getRefreshes() == 0; i++) {
+                Thread.sleep(20);
+            }
+            time.addAndGet(Duration.ofMillis(4500).toNanos());
+            assertAll(() -> assertEquals(101, cache.get("a")),
+                    () -> assertEquals(1, loads.get()),
+                    () -> assertEquals(1, cache.getStats().getRefreshes()),
+                    () -> assertEquals(0, cache.getStats().getExpirations())
+            );
+        }
+    }
+
+    /**
+     * Test para comprobar que los fallos simultáneos en la misma clave comparten una única carga
+     *
+     * @throws Exception Si falla algún hilo
+     */
+    @Test
+    void testConcurrentMissesShareLoad() throws Exception {
+        TinyLfuCache<String, Integer> cache = new TinyLfuCache<>(10);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> cache.get("a", key -> {
+                release.await();
+                return 100 + loads.incrementAndGet();
+            })));
+        }
+        for (int i = 0; i < 250 && cache.getStats().getCoalescedLoads() < 7; i++) {
+            Thread.sleep(20);
+        }
+        release.countDown();
+        for (Future<Integer> future : futures) {
+            assertEquals(101, future.get());
+        }
+        executor.shutdown();
+        assertAll(() -> assertEquals(1, loads.get()),
+                () -> assertEquals(1, cache.getStats().getLoads()),
+                () -> assertEquals(7, cache.getStats().getCoalescedLoads()),
+                () -> assertEquals(101, cache.get("a"))
+        );
+    }
+
+    /**
+     * Test para comprobar que el error de una carga se propaga y no impide cargas posteriores
+     *
+     * @throws Exception Si falla la segunda carga
+     */
+    @Test
+    void testFailedLoad() throws Exception {
+        TinyLfuCache<String, Integer> cache = new TinyLfuCache<>(10);
+        assertThrows(SQLException.class, () -> cache.get("a", key -> {
+            throw new SQLException("Error");
+        }));
+        assertAll(() -> assertNull(cache.get("b", key -> null)),
+                () -> assertEquals(1, cache.get("a", key -> 1)),
+                () -> assertEquals(0, cache.getStats().getCoalescedLoads())
+        );
+    }
+
+    /**
+     * Test para comprobar que la caché no supera su tamaño con lecturas y escrituras concurrentes
+     *
+     * @throws Exception Si falla algún hilo
+     */
+    @Test
+    void testConcurrentAccess() throws Exception {
+        TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<>(64);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 20_000; i++) {
+                    int key = random.nextInt(256);
+                    Integer value = cache.get(key);
+                    if (value == null) {
+                        cache.put(key, key);
+                    } else {
+                        assertEquals(key, value);
+                    }
+                    if (i % 100 == 0) {
+                        cache.remove(random.nextInt(256));
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertTrue(cache.size() <= 64);
+    }
+}